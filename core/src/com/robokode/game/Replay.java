@@ -0,0 +1,258 @@
+package com.robokode.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.math.Vector3;
+import com.robokode.game.mvc.Action;
+import com.robokode.game.mvc.Message;
+import com.robokode.game.screens.MainGame;
+import com.robokode.game.sprites.GenericSprite;
+import com.robokode.game.sprites.characters.PlayerSprite;
+import com.robokode.game.sprites.characters.State;
+import com.robokode.utils.ConsoleLog;
+import com.robokode.utils.Direction;
+import com.robokode.utils.maps.MapInfo;
+import com.robokode.utils.maps.MapLoader;
+import com.robokode.utils.trace.TraceRun;
+
+import java.util.List;
+
+import static com.robokode.game.mvc.Message.TypeMessage;
+
+/**
+ * Rejoue dans la vue des exécutions enregistrées (cf. TraceRecorder), sans
+ * interpréteur ni contrôleur : la scène est reconstruite d'après la carte, et
+ * les actions enregistrées sont confiées telles quelles aux sprites.
+ *
+ * Une étape est une action de la trace. On peut se placer sur n'importe
+ * quelle étape : la scène est reconstruite et les actions précédentes sont
+ * appliquées sans animation, puis la lecture reprend à la vitesse choisie.
+ * En instantané, rien n'est joué : la scène reste sur l'étape demandée.
+ *
+ * Commandes clavier : gauche\droite étape précédente\suivante, début\fin,
+ * 1, 4 et 0 pour la vitesse (1×, 4×, instantané), page préc.\suiv. pour
+ * changer de run. Toutes les méthodes sont appelées sur le thread GDX.
+ */
+public class Replay {
+
+    public enum Vitesse {
+        X1(1), X4(4), INSTANT(1);
+
+        // Facteur appliqué au temps des animations (neutre en instantané, où rien n'est animé)
+        final float facteur;
+
+        Vitesse(float facteur) { this.facteur = facteur; }
+    }
+
+    private final RoboGame game;
+    private final List<TraceRun> runs;
+    private int indexRun;
+
+    private MainGame mainGame;
+    private MapInfo mapI;
+
+    private Vitesse vitesse = Vitesse.X1;
+
+    // Etape affichée en instantané, aucune action n'étant confiée aux sprites
+    private int etapeInstant;
+
+    public Replay(RoboGame game, List<TraceRun> runs) {
+        this.game = game;
+        this.runs = runs;
+    }
+
+    /* Run courant
+     * =================================== */
+
+    public TraceRun getRun() {
+        return runs.get(indexRun);
+    }
+
+    public int getIndexRun() {
+        return indexRun;
+    }
+
+    public int getNbRuns() {
+        return runs.size();
+    }
+
+    // Le run change : RoboGame recrée l'écran de jeu si la carte n'est plus la même
+    private void changerRun(int index) {
+        if (index < 0 || index >= runs.size() || index == indexRun) return;
+
+        int carte = getRun().carte;
+        indexRun = index;
+
+        if (getRun().carte != carte)
+            game.rejouerCarte(getRun().carte);
+        else
+            demarrer(mainGame);
+    }
+
+    // L'écran de jeu du run est prêt : on le rejoue depuis le début
+    void demarrer(MainGame mainGame) {
+        this.mainGame = mainGame;
+        this.mapI = MapLoader.Instance().getInfo(getRun().carte);
+
+        TraceRun run = getRun();
+        ConsoleLog.put("Replay : " + run + " - " + run.actions.size() + " actions, " + run.nbStatements
+                + " statements, fin " + run.fin + " (" + (indexRun + 1) + "/" + runs.size() + ")");
+
+        // En instantané, la lecture du run mène directement à sa fin
+        aller(vitesse == Vitesse.INSTANT ? getNbEtapes() : 0);
+    }
+
+    /* Lecture
+     * =================================== */
+
+    public int getNbEtapes() {
+        return getRun().actions.size();
+    }
+
+    // Etape en cours : actions commencées par les sprites
+    public int getEtape() {
+        if (vitesse == Vitesse.INSTANT) return etapeInstant;
+
+        int restantes = 0;
+        for (int j = 0; j < 2; j++) {
+            PlayerSprite robot = mainGame.getRobot(j);
+            if (robot != null) restantes += robot.getNbActionsRestantes();
+        }
+        return getNbEtapes() - restantes;
+    }
+
+    public Vitesse getVitesse() {
+        return vitesse;
+    }
+
+    // Change la vitesse de lecture : en instantané, on va directement à la fin
+    public void setVitesse(Vitesse vitesse) {
+        int etape = getEtape();
+        boolean reprise = (this.vitesse == Vitesse.INSTANT);
+
+        this.vitesse = vitesse;
+        GenericSprite.setVitesse(vitesse.facteur);
+
+        if (vitesse == Vitesse.INSTANT)
+            aller(getNbEtapes());
+        else if (reprise)
+            // Rien n'était joué : la lecture reprend depuis l'étape affichée
+            aller(etape);
+    }
+
+    /**
+     * Place la scène juste avant l'étape demandée, puis reprend la lecture.
+     */
+    public void aller(int etape) {
+        List<Action> actions = getRun().actions;
+        etape = Math.max(0, Math.min(etape, actions.size()));
+
+        initScene();
+
+        // Les étapes passées sont appliquées directement, les suivantes sont jouées
+        for (int i = 0; i < etape; i++) appliquer(actions.get(i));
+        etapeInstant = etape;
+
+        // En instantané, la scène reste sur l'étape demandée
+        if (vitesse != Vitesse.INSTANT) {
+            for (int i = etape; i < actions.size(); i++) {
+                Action action = actions.get(i);
+                PlayerSprite robot = mainGame.getRobot(action.indexJ);
+                if (robot != null) robot.addAction(action);
+            }
+        }
+
+        ConsoleLog.put("Replay : étape " + etape + "/" + actions.size() + " (" + vitesse + ")");
+    }
+
+    // Commandes clavier, à chaque frame
+    void mettreAJour() {
+        if (Gdx.input.isKeyJustPressed(Keys.RIGHT)) aller(getEtape() + 1);
+        if (Gdx.input.isKeyJustPressed(Keys.LEFT)) aller(getEtape() - 1);
+        if (Gdx.input.isKeyJustPressed(Keys.HOME)) aller(0);
+        if (Gdx.input.isKeyJustPressed(Keys.END)) aller(getNbEtapes());
+
+        if (Gdx.input.isKeyJustPressed(Keys.NUM_1)) setVitesse(Vitesse.X1);
+        if (Gdx.input.isKeyJustPressed(Keys.NUM_4)) setVitesse(Vitesse.X4);
+        if (Gdx.input.isKeyJustPressed(Keys.NUM_0)) setVitesse(Vitesse.INSTANT);
+
+        if (Gdx.input.isKeyJustPressed(Keys.PAGE_DOWN)) changerRun(indexRun + 1);
+        if (Gdx.input.isKeyJustPressed(Keys.PAGE_UP)) changerRun(indexRun - 1);
+    }
+
+    /* Scène
+     * =================================== */
+
+    // Remet la scène dans son état de départ, comme le contrôleur au lancement de la partie
+    private void initScene() {
+        game.traiterMessage(new Message(TypeMessage.RESET));
+
+        Message msg = new Message(TypeMessage.ADD_ROBOT);
+        msg.x = mapI.startPos[0];
+        msg.y = mapI.startPos[1];
+        msg.num = 0;
+        if (mapI.typeMap == MapInfo.MapType.TUTO_MULTI) msg.orientation = State.STATIC_BG;
+        game.traiterMessage(msg);
+
+        switch (mapI.typeMap) {
+            case TUTO_SHOOT:
+                msg = new Message(TypeMessage.ADD_TOWER);
+                msg.x = mapI.towerPos[0];
+                msg.y = mapI.towerPos[1];
+                game.traiterMessage(msg);
+            break;
+            case TUTO_MULTI:
+                msg = new Message(TypeMessage.ADD_ROBOT);
+                msg.x = mapI.ennemyPos[0];
+                msg.y = mapI.ennemyPos[1];
+                msg.num = 1;
+                game.traiterMessage(msg);
+            break;
+        }
+    }
+
+    // Applique sans animation l'effet durable d'une action : position, orientation, vie
+    // => bulles, pauses et victoire sont passagères, on les ignore
+    private void appliquer(Action action) {
+        PlayerSprite robot = mainGame.getRobot(action.indexJ);
+
+        switch (action.type) {
+            case MOVE:
+            case MOVE_N:
+                if (robot == null) break;
+                if (action.coord != null) {
+                    // Le chemin se termine sur la case d'arrivée
+                    int n = action.coord.length;
+                    robot.placer(action.coord[n-2], action.coord[n-1], action.dir);
+                } else {
+                    // Déplacement d'une case sans coordonnées (robot ennemi)
+                    Vector3 pos = robot.getCoordIso();
+                    int[] dest = voisin(pos.x, pos.y, action.dir);
+                    robot.placer(dest[0], dest[1], action.dir);
+                }
+            break;
+            case SHOOT:
+                if (robot != null) robot.placer(robot.getCoordIso().x, robot.getCoordIso().y, action.dir);
+                if (action.linkedAction != null) appliquer(action.linkedAction);
+            break;
+            case SET_HP_TOUR:
+                mainGame.getTourelle(action.indexT).setLifeTotal(action.HP);
+            break;
+            case SET_HP_ROBOT:
+                if (robot != null) robot.setLifeTotal(action.HP);
+            break;
+            default:
+        }
+    }
+
+    // Case voisine de (x,y) dans la direction dir (cf. PlayerSprite.moveDir)
+    private static int[] voisin(float x, float y, Direction dir) {
+        switch (dir) {
+            case HD: return new int[]{ (int) x, (int) y + 1 };
+            case HG: return new int[]{ (int) x - 1, (int) y };
+            case BD: return new int[]{ (int) x + 1, (int) y };
+            case BG: return new int[]{ (int) x, (int) y - 1 };
+            default: return new int[]{ (int) x, (int) y };
+        }
+    }
+}
@@ -10,16 +10,24 @@ import com.robokode.game.mvc.Observateur;
 import com.robokode.game.screens.LevelChoose;
 import com.robokode.game.screens.MainGame;
 import com.robokode.game.screens.MainMenu;
+import com.robokode.game.sprites.GenericSprite;
 import com.robokode.game.ui.GameFrame;
 import com.robokode.game.ui.IconList;
 import com.robokode.game.ui.LevelInfo;
+import com.robokode.interpreter.Diagnostic;
 import com.robokode.model.Controleur;
+import com.robokode.utils.ConsoleLog;
 import com.robokode.utils.Ressources;
+import com.robokode.utils.trace.TraceReader;
+import com.robokode.utils.trace.TraceRun;
 import com.sun.javafx.tk.Toolkit;
 import javafx.application.Platform;
-import java.util.ArrayList;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /** RoboGame est le contrôleur des vues du jeu **/
 public class RoboGame extends Game implements Observateur {
@@ -54,6 +62,12 @@ public class RoboGame extends Game implements Observateur {
     // Index du niveau courant
     private int mapIndex;
 
+    // Exécutions enregistrées rejouées à la place du contrôleur (null : partie normale)
+    private Replay replay;
+
+    // Tâches des autres threads (résultats des scripts du joueur), exécutées au début du prochain rendu
+    private final ConcurrentLinkedQueue<Runnable> differees = new ConcurrentLinkedQueue<>();
+
     public RoboGame(Controleur ctrl, GameFrame gFrame) {
         this.ctrl = ctrl;
         this.gFrame = gFrame;
@@ -103,18 +117,19 @@ public class RoboGame extends Game implements Observateur {
                         Platform.runLater(() -> gFrame.addInfoList(msg.iconType, msg.text));
                     }
                 break;
+                case PROFIL:
+                    // On affiche dans l'éditeur les lignes les plus exécutées
+                    gFrame.showProfile(msg.profil);
+                break;
                 case ADD_LIST_ERROR:
                     // On ajoute à la liste de statut les erreurs syntaxiques détectées
-                    ArrayList<String> tokenList = new ArrayList<>();// Si l'opération n'est pas faite sur le thread FX, on l'ajoute en Runnable
+                    // Si l'opération n'est pas faite sur le thread FX, on l'ajoute en Runnable
                     Runnable operation = () -> {
-                        for (String[] errStr : msg.errorList) {
-                            gFrame.addInfoList(IconList.IconType.ERROR, errStr[0], errStr[1]);
-                            // Si le token est à sélectionner dans le codePane, on l'ajoute à la liste
-                            if (errStr[2].equals("w")) tokenList.add(errStr[1]);
-                        }
-
-                        // S'il y a des token erreur à sélectionner, on les envoie à la vue
-                        if (tokenList.size()>0)   gFrame.selectErrors(tokenList);
+                        for (Diagnostic err : msg.errorList)
+                            gFrame.addInfoList(IconList.IconType.ERROR, err.message, err.token);
+
+                        // Les erreurs sont soulignées dans le codePane, à leur position
+                        gFrame.showErrors(msg.errorList);
                     };
 
                     try {
@@ -136,6 +151,12 @@ public class RoboGame extends Game implements Observateur {
             traiterMessage(msg);
     }
 
+    // Exécution différée sur le thread de rendu, sans verrou : le contrôleur y renvoie ses messages
+    @Override
+    public void differer(Runnable tache) {
+        differees.add(tache);
+    }
+
     // Change l'écran mode du jeu
     public void setScreenState(EtatJeu etat) {
         // On définit l'état
@@ -147,7 +168,7 @@ public class RoboGame extends Game implements Observateur {
         switch (etat) {
             case MAIN_GAME:
                 // => On prépare le popup d'informations sur le niveau
-                gFrame.getLevelInfo().loadLevelInfo(mapIndex);
+                if (replay == null) gFrame.getLevelInfo().loadLevelInfo(mapIndex);
 
                 // On redimensionne le canvas du jeu pour qu'il prenne une partie de la fenêtre
                 gFrame.setGameMode();
@@ -155,6 +176,12 @@ public class RoboGame extends Game implements Observateur {
                 // On définit l'écran de jeu
                 setScreen(sC);
 
+                // En replay, la vue est animée par les actions enregistrées
+                if (replay != null) {
+                    replay.demarrer(getMainGame());
+                    break;
+                }
+
                 // On lance la partie en mode tutoriel
                 // => On envoie en paramètres l'index du niveau choisi
                 ctrl.lancerPartie(Controleur.GameMode.TUTORIAL, mapIndex);
@@ -170,6 +197,10 @@ public class RoboGame extends Game implements Observateur {
     // Retour à la vue en plein écan
     // @param : true si le dernier niveau joué a été terminé
     public void returnLevelSelect(boolean finished) {
+        // On quitte le replay éventuel
+        replay = null;
+        GenericSprite.setVitesse(1);
+
         // On supprime l'objet MainGame
         getMainGame().dispose();
         ecrans.remove(EtatJeu.MAIN_GAME);
@@ -178,6 +209,8 @@ public class RoboGame extends Game implements Observateur {
         // On ne peut pas dépasser le nombre de niveaux maximum
         if (finished) mapIndex++;   if (mapIndex >= Ressources.NB_LEVELS) mapIndex--;
 
+        // => Un replay lancé au démarrage n'est pas passé par la sélection des niveaux
+        createScreen(EtatJeu.SELECT_LVL);
         getLvlSelect().directSetLevel(mapIndex);
 
         // On réinitialise l'intégralité du modèle
@@ -190,6 +223,27 @@ public class RoboGame extends Game implements Observateur {
         setScreenState(EtatJeu.SELECT_LVL);
     }
 
+    // Rejoue des exécutions enregistrées, sans contrôleur ni interpréteur
+    public void rejouer(List<TraceRun> runs) {
+        if (runs.isEmpty()) return;
+
+        replay = new Replay(this, runs);
+        mapIndex = runs.get(0).carte;
+        setScreenState(EtatJeu.MAIN_GAME);
+    }
+
+    // Le run rejoué se déroule sur une autre carte : on recrée l'écran de jeu
+    void rejouerCarte(int carte) {
+        getMainGame().dispose();
+        ecrans.remove(EtatJeu.MAIN_GAME);
+
+        mapIndex = carte;
+        setScreenState(EtatJeu.MAIN_GAME);
+    }
+
+    // Replay en cours (null : partie normale)
+    public Replay getReplay() { return replay; }
+
     // Hack : méthode "tunnel" pour accéder à LevelInfo
     public LevelInfo getLvlInfo() { return this.gFrame.getLevelInfo(); }
 
@@ -244,13 +298,31 @@ public class RoboGame extends Game implements Observateur {
         // On crée la caméra du menu
         cam = new MenuCamera(W_WIDTH, W_HEIGHT);
 
+        // Mode replay : on rejoue directement les exécutions du fichier de traces (propriété robokode.replay)
+        String traces = System.getProperty("robokode.replay");
+        if (traces != null) {
+            try {
+                rejouer(TraceReader.charger(Paths.get(traces)));
+            } catch (IOException e) {
+                ConsoleLog.put("Replay : impossible de lire " + traces + " (" + e.getMessage() + ")");
+            }
+        }
+
         // On affiche le menu du jeu :
-        setScreenState(EtatJeu.MAIN_MENU);
+        if (replay == null) setScreenState(EtatJeu.MAIN_MENU);
     }
 
     @Override
     public void render () {
         batch.setProjectionMatrix(cam.combined());
+
+        // On traite les résultats produits par les autres threads depuis le dernier rendu
+        Runnable tache;
+        while ((tache = differees.poll()) != null) tache.run();
+
+        // => Le replay peut être quitté depuis le thread Swing (bouton home)
+        Replay replay = this.replay;
+        if (replay != null && etat == EtatJeu.MAIN_GAME) replay.mettreAJour();
         super.render();
     }
 
@@ -10,6 +10,7 @@ public class Action {
 
     public enum ActionType {
         MOVE,            // déplacement classique dans une direction
+        MOVE_N,          // nbPas déplacements consécutifs dans une direction, le long du chemin coord[]
         SHOOT,           // le joueur tire dans une direction donnée, vers une destination (x,y) => coord[]
         BULLE,           // affichage d'une bulle d'erreur
         SET_HP_TOUR,     // définit le montant de la vie d'une tour
@@ -27,6 +28,7 @@ public class Action {
     public BulleType bulle;
     public int coord[];
     public int HP, nbEtoiles;
+    public int nbPas; // Nombre de cases parcourues par un MOVE_N
 
     public int indexJ; // Index du joueur à qui on applique l'action
     public int indexT; // Index de la tourelle
@@ -42,4 +44,22 @@ public class Action {
     public Action(int indexT, int HP) {  this.type = ActionType.SET_HP_TOUR; this.HP = HP;  }
     public Action(int nbEtoiles) {  this.type = ActionType.GAGNE_TUTO; this.nbEtoiles = nbEtoiles;  }
 
+    /** Fusion des déplacements **/
+
+    // Renvoie vrai si un déplacement dans la direction dir peut prolonger cette action
+    public boolean prolongeable(Direction dir, int indexJ) {
+        return (type == ActionType.MOVE || type == ActionType.MOVE_N) && coord != null
+                && this.dir == dir && this.indexJ == indexJ && linkedAction == null;
+    }
+
+    // Prolonge le déplacement d'un pas, jusqu'à la case (x,y) : l'action devient un MOVE_N
+    public void prolonger(int x, int y) {
+        int[] chemin = new int[coord.length + 2];
+        System.arraycopy(coord, 0, chemin, 0, coord.length);
+        chemin[coord.length] = x;   chemin[coord.length + 1] = y;
+
+        this.coord = chemin;    this.nbPas++;
+        this.type = ActionType.MOVE_N;
+    }
+
 }
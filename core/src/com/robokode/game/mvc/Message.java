@@ -2,6 +2,8 @@ package com.robokode.game.mvc;
 
 import com.robokode.game.sprites.characters.State;
 import com.robokode.game.ui.IconList;
+import com.robokode.interpreter.Diagnostic;
+import com.robokode.interpreter.Profile;
 
 import java.util.ArrayList;
 
@@ -20,6 +22,7 @@ public class Message {
         // Feedback de jeu
         ADD_LIST_MSG, // on ajoute un message dans la liste de statut de l'IHM
         ADD_LIST_ERROR, // on ajoute une liste d'erreurs syntaxiques à la liste de statut
+        PROFIL, // on affiche le profil d'exécution du script dans l'éditeur (profilage activé)
 
         // Actions du robot
         ACTIONS, // le robot effectue une action (définie par utils.Action)
@@ -40,7 +43,8 @@ public class Message {
     public int x, y, num;
     public ArrayList<Action> actionList;
     public IconList.IconType iconType;
-    public ArrayList<String[]> errorList;
+    public ArrayList<Diagnostic> errorList;
+    public Profile profil;
     public String text;
     public State orientation;
 }
@@ -9,4 +9,7 @@ import java.util.List;
 public interface Observateur {
     public void traiterMessage(Message msg);
     public void traiterMessage(List<Message> msg);
+
+    // Exécute une tâche sur le thread de la vue, au prochain rendu (appelable depuis tout thread)
+    public void differer(Runnable tache);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ package com.robokode.game.sprites;
 import com.robokode.utils.Math;
 
 // LibGDX
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.maps.tiled.renderers.IsometricTiledMapRenderer;
@@ -15,6 +16,9 @@ import com.badlogic.gdx.math.Vector3;
  */
 public abstract class GenericSprite extends Sprite implements Comparable<GenericSprite> {
 
+    // Vitesse d'écoulement du temps des animations (1 : temps réel)
+    private static float vitesse = 1;
+
     // Objet de rendu isométrique
     protected IsometricTiledMapRenderer renderer;
 
@@ -37,6 +41,14 @@ public abstract class GenericSprite extends Sprite implements Comparable<Generic
     // Méthode de dessin de l'élément graphique
     public abstract void draw();
 
+    // Accélère (ou ralentit) toutes les animations : utilisé pour rejouer une partie plus vite
+    public static void setVitesse(float v) { vitesse = v; }
+
+    // Temps écoulé depuis la dernière frame, à la vitesse des animations
+    protected static float getDeltaTime() {
+        return Gdx.graphics.getDeltaTime() * vitesse;
+    }
+
     // Coordonnées iso du sprite
     public Vector3 getCoordIso() {
         return this.coordIso;
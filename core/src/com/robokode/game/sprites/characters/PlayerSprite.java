@@ -1,6 +1,5 @@
 package com.robokode.game.sprites.characters;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
@@ -79,6 +78,11 @@ public class PlayerSprite extends GenericSprite {
     // Liste des mouvements du sprite encore à effectuer
     private ArrayList<Action> actionList;
 
+    // Marche en cours (MOVE_N) : chemin précalculé [x1,y1,x2,y2...], direction et index du pas
+    private int[] chemin;
+    private Direction dirChemin;
+    private int etape;
+
     // Statut du joueur
     private State player_state;
 
@@ -148,7 +152,7 @@ public class PlayerSprite extends GenericSprite {
         Vector3 coord;
 
         // Mise à jour du temps écoulé
-        float deltaT = Gdx.graphics.getDeltaTime();
+        float deltaT = getDeltaTime();
         elapsedTime += deltaT;
 
         // On initialise le batch
@@ -171,6 +175,11 @@ public class PlayerSprite extends GenericSprite {
                     case MOVE:
                         moveDir(act.dir);
                     break;
+                    case MOVE_N:
+                        // On parcourt tout le chemin d'une traite, sans pause entre les pas
+                        chemin = act.coord;     dirChemin = act.dir;    etape = 0;
+                        moveVers(dirChemin, chemin[0], chemin[1]);
+                    break;
                     case SHOOT:
                         shootDir(act.dir, act.coord, act.linkedAction);
                     break;
@@ -231,6 +240,14 @@ public class PlayerSprite extends GenericSprite {
                 // On positionne le personnage sur la case finale
                 coord = coordPix;
 
+                // S'il reste des pas dans la marche en cours, on enchaîne directement le suivant
+                if (chemin != null) {
+                    if (++etape < chemin.length / 2)
+                        moveVers(dirChemin, chemin[2*etape], chemin[2*etape+1]);
+                    else
+                        chemin = null;
+                }
+
             } else { // Sinon on déplace le personnage vers la destination
                 coord = new Vector3();
 
@@ -307,31 +324,43 @@ public class PlayerSprite extends GenericSprite {
     // Déplace le sprite du joueur dans la direction dir
     // => définit la case destination
     public void moveDir(Direction dir) {
+        switch(dir) {
+            case HD:
+                moveVers(dir, this.coordIso.x, this.coordIso.y + 1);
+                break;
+            case HG:
+                moveVers(dir, this.coordIso.x - 1, this.coordIso.y);
+                break;
+            case BD:
+                moveVers(dir, this.coordIso.x + 1, this.coordIso.y);
+                break;
+            case BG:
+                moveVers(dir, this.coordIso.x, this.coordIso.y - 1);
+                break;
+        }
+    }
+
+    // Déplace le sprite du joueur vers la case voisine (x,y), en marchant dans la direction dir
+    public void moveVers(Direction dir, float x, float y) {
         // On ne peut déplacer un joueur que si il est statique
         if (this.statique) {
             this.statique = false;
             switch(dir) {
                 case HD:
                     player_state = State.MARCHE_HD;
-                    this.destIso.x = this.coordIso.x;
-                    this.destIso.y = this.coordIso.y +1;
                     break;
                 case HG:
                     player_state = State.MARCHE_HG;
-                    this.destIso.x = this.coordIso.x - 1;
-                    this.destIso.y = this.coordIso.y;
                     break;
                 case BD:
                     player_state = State.MARCHE_BD;
-                    this.destIso.x = this.coordIso.x + 1;
-                    this.destIso.y = this.coordIso.y;
                     break;
                 case BG:
                     player_state = State.MARCHE_BG;
-                    this.destIso.x = this.coordIso.x;
-                    this.destIso.y = this.coordIso.y -1;
                     break;
             }
+            this.destIso.x = x;
+            this.destIso.y = y;
 
             // On calcule les coordonnées en pixels de la destination
             destPix = Math.isoToWorldPSP(destIso);
@@ -346,20 +375,7 @@ public class PlayerSprite extends GenericSprite {
     // => Vers la cible (x,y)
     public void shootDir(Direction dir, int[] coord, Action linkedAction) {
         // On change l'orientation du joueur correspondant à la direction du tir
-        switch (dir) {
-            case HG:
-                this.player_state = State.STATIC_HG;
-                break;
-            case HD:
-                this.player_state = State.STATIC_HD;
-                break;
-            case BG:
-                this.player_state = State.STATIC_BG;
-                break;
-            case BD:
-                this.player_state = State.STATIC_BD;
-                break;
-        }
+        this.player_state = staticDir(dir);
 
         // On crée le sprite à la bonne place, géré par l'IHM mère
         mainGame.creerLaserSprite((int)coordIso.x, (int)coordIso.y, coord[0], coord[1], spriteType, dir, linkedAction);
@@ -368,6 +384,33 @@ public class PlayerSprite extends GenericSprite {
         busy = true;    shooting = true;
     }
 
+    // Place directement le sprite sur la case (x,y), tourné dans la direction dir
+    // => sans animation : les actions en attente sont abandonnées
+    public void placer(float x, float y, Direction dir) {
+        actionList.clear();
+        chemin = null;      bulle = BulleType.DEFAULT;
+        statique = true;    busy = shooting = waiting = false;
+        startTimer = bulleTimer = shootTimer = waitTimer = pauseTime = 0;
+
+        coordIso.x = x;     coordIso.y = y;
+        if (dir != null) player_state = staticDir(dir);
+    }
+
+    // Renvoie l'état statique correspondant à une direction
+    private State staticDir(Direction dir) {
+        switch (dir) {
+            case HG:
+                return State.STATIC_HG;
+            case HD:
+                return State.STATIC_HD;
+            case BG:
+                return State.STATIC_BG;
+            case BD:
+            default:
+                return State.STATIC_BD;
+        }
+    }
+
     // Renvoie l'animation de déplacement correspondant à l'action en cours
     private Animation<TextureRegion> getWalkAnim() {
         switch(player_state) {
@@ -511,6 +554,9 @@ public class PlayerSprite extends GenericSprite {
     // Renvoie true si une bulle d'erreur doit être affichée
     private boolean bulleErreur() { return this.bulle != BulleType.DEFAULT; }
 
+    // Nombre d'actions en attente, hors action en cours
+    public int getNbActionsRestantes() { return this.actionList.size(); }
+
     // Renvoie true s'il reste des actions à effectuer pour le sprite
     private boolean actionsPending() { return (this.actionList.size()!=0); }
 
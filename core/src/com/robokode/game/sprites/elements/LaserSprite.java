@@ -1,6 +1,5 @@
 package com.robokode.game.sprites.elements;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -109,7 +108,7 @@ public class LaserSprite extends GenericSprite {
     // Dessine le sprite d'une tour aux coordonnées isométriques isoX, isoY
     public void draw() {
         // Mise à jour du temps écoulé
-        float deltaT = Gdx.graphics.getDeltaTime();
+        float deltaT = getDeltaTime();
         elapsedTime += deltaT;
 
         /** RENDU DU SPRITE **/
@@ -1,6 +1,5 @@
 package com.robokode.game.sprites.elements;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
@@ -88,7 +87,7 @@ public class TowerSprite extends GenericSprite {
     // Dessine le sprite d'une tour aux coordonnées isométriques isoX, isoY
     public void draw() {
         // Mise à jour du temps écoulé
-        float deltaT = Gdx.graphics.getDeltaTime();
+        float deltaT = getDeltaTime();
         elapsedTime += deltaT;
 
         // On initialise le batch
@@ -0,0 +1,78 @@
+package com.robokode.game.ui;
+
+import com.robokode.interpreter.Diagnostic;
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.parser.AbstractParser;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParseResult;
+import org.fife.ui.rsyntaxtextarea.parser.DefaultParserNotice;
+import org.fife.ui.rsyntaxtextarea.parser.ParseResult;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Parser RSyntaxTextArea affichant les erreurs de l'interpréteur dans l'éditeur de code.
+ * Les erreurs portent leur position dans le script : chacune devient directement une
+ * notice soulignée, sans recherche dans le texte. Les positions n'étant valables que
+ * pour le texte analysé, les erreurs sont retirées dès que le texte est modifié.
+ */
+public class ErrorParser extends AbstractParser implements DocumentListener {
+    private final RSyntaxTextArea textArea;
+
+    // Erreurs du dernier texte analysé
+    private List<Diagnostic> diagnostics = Collections.emptyList();
+
+    public ErrorParser(RSyntaxTextArea textArea) {
+        this.textArea = textArea;
+        textArea.getDocument().addDocumentListener(this);
+        textArea.addParser(this);
+    }
+
+    // Affiche les erreurs passées en paramètre (à appeler sur l'EDT)
+    public void setDiagnostics(List<Diagnostic> diagnostics) {
+        this.diagnostics = new ArrayList<>(diagnostics);
+        textArea.forceReparsing(this);
+    }
+
+    // Retire les erreurs affichées (à appeler sur l'EDT)
+    public void clear() {
+        setDiagnostics(Collections.<Diagnostic>emptyList());
+    }
+
+    @Override
+    public ParseResult parse(RSyntaxDocument doc, String style) {
+        DefaultParseResult result = new DefaultParseResult(this);
+        int longueur = doc.getLength();
+
+        for (Diagnostic d : diagnostics) {
+            // Les erreurs sans position ne sont affichées que dans la liste d'infos
+            if (!d.hasPosition()) continue;
+
+            // On borne la notice au document (le script est complété de sauts de ligne à l'analyse)
+            int debut = Math.min(d.start, Math.max(longueur - 1, 0));
+            int fin = Math.min(Math.max(d.end, debut + 1), longueur);
+
+            DefaultParserNotice notice = new DefaultParserNotice(this, d.message + " " + d.token,
+                    d.line, debut, fin - debut);
+            result.addNotice(notice);
+        }
+
+        return result;
+    }
+
+    /* Toute modification rend les positions caduques
+     * =================================== */
+
+    @Override
+    public void insertUpdate(DocumentEvent e) { diagnostics = Collections.emptyList(); }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) { diagnostics = Collections.emptyList(); }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) { }
+}
@@ -4,8 +4,9 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.backends.lwjgl.LwjglAWTCanvas;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.robokode.game.RoboGame;
+import com.robokode.interpreter.Diagnostic;
+import com.robokode.interpreter.Profile;
 import com.robokode.model.Controleur;
-import com.robokode.utils.ConsoleLog;
 import com.robokode.utils.Ressources;
 import com.sun.javafx.css.StyleManager;
 import javafx.application.Application;
@@ -20,15 +21,14 @@ import javafx.scene.layout.Pane;
 import org.fife.ui.rsyntaxtextarea.AbstractTokenMakerFactory;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.TokenMakerFactory;
+import org.fife.ui.rtextarea.Gutter;
 import org.fife.ui.rtextarea.RTextScrollPane;
-import org.fife.ui.rtextarea.SearchContext;
-import org.fife.ui.rtextarea.SearchEngine;
 
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.StyleContext;
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.regex.Pattern;
+import java.util.List;
 
 /**
  * Création du JFrame principal du jeu
@@ -38,6 +38,8 @@ public class GameFrame extends JFrame {
 
     /* Widgets principaux */
     private RSyntaxTextArea codePanel;
+    private RTextScrollPane codeScroll;
+    private ErrorParser errorParser;
     private IconList iconList;
     private JFXPanel jfxPanel;
     private LevelInfo levelInfo;
@@ -91,6 +93,12 @@ public class GameFrame extends JFrame {
         atmf.putMapping("text/rKode", "com.robokode.utils.RoboKodeSyntaxMaker");
         codePanel.setSyntaxEditingStyle("text/rKode");
 
+        // Affichage des erreurs de l'interpréteur dans l'éditeur
+        errorParser = new ErrorParser(codePanel);
+
+        // Vérification de la syntaxe pendant la frappe
+        new SyntaxChecker(codePanel, errorParser);
+
         // Police d'écriture
         codePanel.setFont(StyleContext.getDefaultStyleContext().getFont("Consolas", 0, 15));
         codePanel.setMargin(new Insets(0, 10, 0, 0)); // marge gauche
@@ -98,8 +106,8 @@ public class GameFrame extends JFrame {
 
         // Positionnement de l'éditeur de code, création d'une barre de déroulement
         panelC.setBounds(RoboGame.G_WIDTH, 0, codePaneDims[0]-2, codePaneDims[1]+10);
-        RTextScrollPane sPane = new RTextScrollPane(codePanel);
-        panelC.add(sPane);
+        codeScroll = new RTextScrollPane(codePanel);
+        panelC.add(codeScroll);
         add(panelC);
 
         // Création du panel FX contenant la liste d'action et les boutons
@@ -156,17 +164,27 @@ public class GameFrame extends JFrame {
             // Bouton valider
             valider.setOnAction(event -> {
                 // On envoie au contrôleur le code tapé par le joueur
-                // Lancé sur un thread parralèle ? A FAIRE
-                Gdx.app.postRunnable(() -> ctrl.validerCode(codePanel.getText()));
+                // => Le contrôleur exécute le script sur son propre thread : le rendu n'est pas bloqué
+                // => En replay, il n'y a pas de partie en cours : rien à valider
+                Gdx.app.postRunnable(() -> {
+                    if (ihm.getReplay() == null) ctrl.validerCode(codePanel.getText());
+                });
             });
 
             // Bouton Reset
             restart.setOnAction(event -> {
+                // On arrête aussitôt l'exécution en cours du script, son résultat ne sera pas affiché
+                ctrl.annulerExecution();
+
                 // On réinitialise le contenu du jeu
                 // => On utilise Gdx postRunnable pour pouvoir accéder à OpenGL
                 // => OpenGL est rattaché à un thread unique, on ne peut pas manipuler du contenu graphique
                 // => depuis le thread évenementiel de Swing, par exemple
-                Gdx.app.postRunnable(() -> ctrl.reinitJeu());
+                // => En replay, on revient au début de l'exécution rejouée
+                Gdx.app.postRunnable(() -> {
+                    if (ihm.getReplay() != null) ihm.getReplay().aller(0);
+                    else ctrl.reinitJeu();
+                });
             });
 
             // On ajoute le Panel au root panel
@@ -238,57 +256,58 @@ public class GameFrame extends JFrame {
         isoCanvas = new LwjglAWTCanvas(ihm, config);
     }
 
-    // Sélectionne la liste des termes erronés passés en paramètre dans le codePane
-    public void selectErrors(ArrayList<String> errToken) {
-        // Ne fonctionne pour l'instant que pour les erreurs grossières
-        String text = codePanel.getText();
-        if (text.length() == 0) {
-            return;
-        }
+    // Souligne dans le codePane les erreurs passées en paramètre, à leur position dans le script
+    public void showErrors(List<Diagnostic> diagnostics) {
+        SwingUtilities.invokeLater(() -> errorParser.setDiagnostics(diagnostics));
+    }
 
-        /** S'il y a plus d'un token erreur */
-        String regExp;
-        if (errToken.size() > 1) {
-            // On génère une expression régulière à partir des tokens erreur passés en paramètre
-            regExp = "(";
-
-            for (int i = 0; i < errToken.size(); i++) {
-                // On ne sélectionne que les tokens d'au moins trois caractères de longueur
-                if (errToken.get(i).length() > 2) {
-                    System.out.println ("token : {"+errToken.get(i)+"} :: length : "+errToken.get(i).length());
-                    String token = errToken.get(i);
-                    regExp += Pattern.quote(token) + ((i<errToken.size()-1) ? "|" : ")");
+    // Affiche le profil d'exécution du script dans la gouttière du codePane :
+    // une pastille par ligne exécutée, du bleu (peu exécutée) au rouge (la plus exécutée)
+    public void showProfile(Profile profil) {
+        final long[] executions = profil.executionsParLigne();
+        final long[] nanos = profil.nanosParLigne();
+
+        SwingUtilities.invokeLater(() -> {
+            Gutter gutter = codeScroll.getGutter();
+            codeScroll.setIconRowHeaderEnabled(true);
+            gutter.removeAllTrackingIcons();
+
+            long max = 1;
+            for (long n : executions) max = Math.max(max, n);
+
+            int nbLignes = codePanel.getLineCount();
+            for (int ligne = 0; ligne < executions.length && ligne < nbLignes; ligne++) {
+                if (executions[ligne] == 0) continue;
+
+                // Echelle logarithmique : les lignes des boucles ressortent sans écraser les autres
+                float chaleur = (float) (Math.log1p(executions[ligne]) / Math.log1p(max));
+                String infos = executions[ligne] + " exécution(s), " + (nanos[ligne] / 1000) + " µs";
+                try {
+                    gutter.addLineTrackingIcon(ligne, new Pastille(Color.getHSBColor(0.66f * (1 - chaleur), 0.8f, 0.9f)), infos);
+                } catch (BadLocationException ex) {
+                    // La ligne n'existe plus dans l'éditeur
                 }
             }
-        } else {
-            // L'expression régulière est simplement le token à rechercher entre parenthèses
-            // On quote pour pouvoir faire des recherches sur des caractères spéciaux
-            if (errToken.get(0).length() > 2) {
-                regExp = "(" + Pattern.quote(errToken.get(0)) + ")";
-            } else {
-                return; // On ne sélectionne pas les tokens de moins de trois caractères de longueur
-            }
-        }
+        });
+    }
+
+    // Pastille colorée de la heatmap
+    private static class Pastille implements Icon {
+        private final Color couleur;
 
-        ConsoleLog.put("RegExp : "+regExp);
-
-        /** Configuration du contexte de recherche **/
-        SearchContext context = new SearchContext();
-        context.setSearchFor(regExp);
-        context.setMatchCase(true);
-        context.setRegularExpression(true);
-        context.setWholeWord(false);
-
-        /** Petit hack : pour éviter de repositionner le caret
-         * On fait deux recherches successives avant\arrière **/
-        try {
-            context.setSearchForward(true);
-            SearchEngine.find(codePanel, context).wasFound();
-            context.setSearchForward(false);
-            SearchEngine.find(codePanel, context).wasFound();
-        } catch (Exception ex) {
-            // ...
+        Pastille(Color couleur) { this.couleur = couleur; }
+
+        @Override
+        public void paintIcon(Component c, Graphics g, int x, int y) {
+            g.setColor(couleur);
+            g.fillRect(x + 2, y + 2, getIconWidth() - 4, getIconHeight() - 4);
         }
+
+        @Override
+        public int getIconWidth() { return 12; }
+
+        @Override
+        public int getIconHeight() { return 12; }
     }
 
     // Ajout d'un élément à la liste d'infos
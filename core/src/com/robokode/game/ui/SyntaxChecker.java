@@ -0,0 +1,296 @@
+package com.robokode.game.ui;
+
+import com.robokode.interpreter.Diagnostic;
+import com.robokode.interpreter.Interpreter;
+import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.Token;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Vérification syntaxique incrémentale du code, pendant la frappe.
+ *
+ * Pour chaque ligne du codePane on tient à jour son rôle dans la structure des
+ * blocs (ouverture si\tantque\pour, fermeture finsi\fintantque\finpour), lu dans
+ * les tokens que RSyntaxTextArea maintient déjà ligne par ligne pour la coloration :
+ * seules les lignes modifiées sont re-tokenisées. Après un délai d'inactivité, on
+ * ne ré-analyse que les blocs de premier niveau contenant des lignes modifiées, sur
+ * un thread dédié ; les erreurs des autres lignes sont conservées.
+ *
+ * Les méthodes de la classe sont appelées sur l'EDT, seul le parsing en sort.
+ */
+public class SyntaxChecker implements DocumentListener, ActionListener {
+    // Délai d'inactivité avant vérification (en ms)
+    private static final int DELAI = 400;
+
+    // Rôle d'une ligne dans la structure des blocs
+    private enum Bloc { AUCUN, OUVRE, FERME }
+
+    // Erreur rattachée à une ligne : la colonne suit la ligne quand le texte se décale
+    private static final class Erreur {
+        final Diagnostic diagnostic;
+        final int colonne;
+
+        Erreur(Diagnostic diagnostic, int colonne) {
+            this.diagnostic = diagnostic;   this.colonne = colonne;
+        }
+    }
+
+    private final RSyntaxTextArea textArea;
+    private final ErrorParser errorParser;
+
+    // Etat de chaque ligne du document
+    private final List<Bloc> blocs = new ArrayList<>();
+    private final List<List<Erreur>> erreurs = new ArrayList<>();
+
+    // Lignes modifiées depuis la dernière vérification (-1 : aucune)
+    private int modifDebut = -1, modifFin = -1;
+
+    // Incrémenté à chaque modification : un résultat obsolète est ignoré
+    private int generation;
+
+    private final Timer minuterie;
+    private final ExecutorService verificateur = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "RoboKode-syntaxe");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SyntaxChecker(RSyntaxTextArea textArea, ErrorParser errorParser) {
+        this.textArea = textArea;
+        this.errorParser = errorParser;
+
+        // Etat initial : toutes les lignes sont à vérifier
+        RSyntaxDocument doc = document();
+        int nbLignes = doc.getDefaultRootElement().getElementCount();
+        for (int i = 0; i < nbLignes; i++) {
+            blocs.add(bloc(doc, i));
+            erreurs.add(Collections.<Erreur>emptyList());
+        }
+        modifier(0, nbLignes - 1);
+
+        minuterie = new Timer(DELAI, this);
+        minuterie.setRepeats(false);
+        minuterie.start();
+
+        doc.addDocumentListener(this);
+    }
+
+    /* Suivi des modifications (EDT)
+     * =================================== */
+
+    @Override
+    public void insertUpdate(DocumentEvent e) { lignesModifiees(e); }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) { lignesModifiees(e); }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) { }
+
+    // Met à jour l'état des lignes touchées par une modification, et programme une vérification
+    private void lignesModifiees(DocumentEvent e) {
+        RSyntaxDocument doc = document();
+        Element racine = doc.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(racine);
+        boolean structure = false;
+        int debut, fin;
+
+        if (change != null) {
+            // Des lignes ont été remplacées : on retire les anciennes, on tokenise les nouvelles
+            debut = change.getIndex();
+            int retirees = change.getChildrenRemoved().length;
+            int ajoutees = change.getChildrenAdded().length;
+
+            for (int i = 0; i < retirees; i++) {
+                structure |= blocs.remove(debut) != Bloc.AUCUN;
+                erreurs.remove(debut);
+            }
+            for (int i = 0; i < ajoutees; i++) {
+                Bloc bloc = bloc(doc, debut + i);
+                structure |= bloc != Bloc.AUCUN;
+                blocs.add(debut + i, bloc);
+                erreurs.add(debut + i, Collections.<Erreur>emptyList());
+            }
+            fin = debut + Math.max(ajoutees, 1) - 1;
+            decaler(debut, ajoutees - retirees);
+        } else {
+            // Modification à l'intérieur d'une ligne : seule celle-ci est re-tokenisée
+            debut = fin = racine.getElementIndex(e.getOffset());
+            Bloc bloc = bloc(doc, debut);
+            structure = bloc != blocs.get(debut);
+            blocs.set(debut, bloc);
+        }
+
+        // Si la structure des blocs change, les blocs suivants peuvent être appariés autrement
+        if (structure) fin = blocs.size() - 1;
+
+        modifier(debut, fin);
+        generation++;
+        minuterie.restart();
+    }
+
+    // Ajoute les lignes [debut, fin] aux lignes modifiées
+    private void modifier(int debut, int fin) {
+        if (modifDebut < 0) {
+            modifDebut = debut;     modifFin = fin;
+        } else {
+            modifDebut = Math.min(modifDebut, debut);
+            modifFin = Math.max(modifFin, fin);
+        }
+        modifFin = Math.min(modifFin, blocs.size() - 1);
+    }
+
+    // Décale les lignes modifiées après l'ajout (ou le retrait) de delta lignes en ligne index
+    private void decaler(int index, int delta) {
+        if (modifDebut < 0 || delta == 0) return;
+        if (modifDebut > index) modifDebut = Math.max(index, modifDebut + delta);
+        if (modifFin > index) modifFin = Math.max(index, modifFin + delta);
+    }
+
+    // Rôle d'une ligne dans la structure des blocs, d'après son premier token
+    private Bloc bloc(RSyntaxDocument doc, int ligne) {
+        Token token = premierToken(doc.getTokenListForLine(ligne));
+        if (token == null || token.getType() != Token.RESERVED_WORD) return Bloc.AUCUN;
+
+        // Une assignation prime sur les mots-clés : "si = 2" reste valide
+        Token suivant = premierToken(token.getNextToken());
+        if (suivant != null && suivant.isSingleChar('=')) return Bloc.AUCUN;
+
+        switch (token.getLexeme()) {
+            case "si": case "tantque": case "pour":
+                return Bloc.OUVRE;
+            case "finsi": case "fintantque": case "finpour":
+                return Bloc.FERME;
+            default:
+                return Bloc.AUCUN;
+        }
+    }
+
+    // Premier token significatif de la liste (ni blanc ni commentaire)
+    private static Token premierToken(Token token) {
+        while (token != null && token.isPaintable() && token.isCommentOrWhitespace())
+            token = token.getNextToken();
+        return (token != null && token.isPaintable()) ? token : null;
+    }
+
+    /* Vérification
+     * =================================== */
+
+    // Fin du délai d'inactivité : on envoie les blocs modifiés au thread de vérification
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        if (modifDebut < 0) return;
+
+        int[] zone = zone(modifDebut, modifFin);
+        final int premiere = zone[0], derniere = zone[1], gen = generation;
+        final String texte, avant;
+        try {
+            RSyntaxDocument doc = document();
+            Element racine = doc.getDefaultRootElement();
+            int debut = racine.getElement(premiere).getStartOffset();
+            int fin = Math.min(racine.getElement(derniere).getEndOffset(), doc.getLength());
+            texte = doc.getText(debut, fin - debut);
+            // Les variables assignées avant la zone sont connues du fragment
+            avant = doc.getText(0, debut);
+        } catch (BadLocationException ex) {
+            return;
+        }
+
+        verificateur.execute(() -> {
+            List<Diagnostic> resultat = Interpreter.verifier(texte, avant);
+            SwingUtilities.invokeLater(() -> appliquer(gen, premiere, derniere, texte, resultat));
+        });
+    }
+
+    /**
+     * Etend les lignes [debut, fin] aux blocs de premier niveau qui les contiennent :
+     * un bloc équilibré s'analyse indépendamment du reste du script.
+     * Un bloc jamais fermé s'étend jusqu'à la fin du document.
+     */
+    private int[] zone(int debut, int fin) {
+        int premiere = debut, derniere = fin;
+        int profondeur = 0, ouverture = 0;
+
+        for (int i = 0; i < blocs.size(); i++) {
+            if (profondeur == 0) ouverture = i;
+
+            if (blocs.get(i) == Bloc.OUVRE) profondeur++;
+            else if (blocs.get(i) == Bloc.FERME && profondeur > 0) profondeur--;
+
+            // La ligne i termine le bloc [ouverture, i]
+            if (profondeur == 0 && ouverture <= fin && i >= debut) {
+                premiere = Math.min(premiere, ouverture);
+                derniere = Math.max(derniere, i);
+            }
+        }
+
+        if (profondeur > 0 && ouverture <= fin) {
+            premiere = Math.min(premiere, ouverture);
+            derniere = blocs.size() - 1;
+        }
+
+        return new int[]{ premiere, derniere };
+    }
+
+    // Enregistre les erreurs des lignes [premiere, derniere], puis les publie dans l'éditeur
+    private void appliquer(int gen, int premiere, int derniere, String texte, List<Diagnostic> resultat) {
+        // Le texte a changé entre-temps : une nouvelle vérification est déjà programmée
+        if (gen != generation) return;
+
+        // Début de chaque ligne dans le texte vérifié
+        int[] debuts = new int[derniere - premiere + 1];
+        for (int i = 0, ligne = 1; i < texte.length() && ligne < debuts.length; i++)
+            if (texte.charAt(i) == '\n') debuts[ligne++] = i + 1;
+
+        for (int i = premiere; i <= derniere; i++) erreurs.set(i, new ArrayList<Erreur>());
+
+        for (Diagnostic d : resultat) {
+            if (!d.hasPosition()) continue;
+
+            // Les erreurs en fin de fragment sont rattachées à sa dernière ligne
+            int ligne = Math.min(d.line, debuts.length - 1);
+            int colonne = Math.max(0, Math.min(d.start, texte.length()) - debuts[ligne]);
+            erreurs.get(premiere + ligne).add(new Erreur(d, colonne));
+        }
+
+        modifDebut = modifFin = -1;
+        publier();
+    }
+
+    // Affiche dans l'éditeur les erreurs de toutes les lignes, à leur position actuelle
+    private void publier() {
+        Element racine = document().getDefaultRootElement();
+        List<Diagnostic> diagnostics = new ArrayList<>();
+
+        for (int i = 0; i < erreurs.size(); i++) {
+            if (erreurs.get(i).isEmpty()) continue;
+
+            int debutLigne = racine.getElement(i).getStartOffset();
+            for (Erreur err : erreurs.get(i)) {
+                Diagnostic d = err.diagnostic;
+                int debut = debutLigne + err.colonne;
+                diagnostics.add(new Diagnostic(d.message, d.token, d.wrongToken, i, debut, debut + d.end - d.start));
+            }
+        }
+
+        errorParser.setDiagnostics(diagnostics);
+    }
+
+    private RSyntaxDocument document() {
+        return (RSyntaxDocument) textArea.getDocument();
+    }
+}
@@ -0,0 +1,141 @@
+package com.robokode.grading;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Correction automatique : évalue chaque script d'un dossier sur chaque
+ * niveau demandé, en parallèle, avec les règles du jeu (cf. Simulation) et
+ * sans aucun rendu. Le rapport donne une ligne par couple (script, niveau).
+ *
+ * Usage : BatchGrader dossier niveaux [--json] [-o fichier]
+ *   niveaux : identifiants séparés par des virgules (ex : 0,1,2)
+ */
+public final class BatchGrader {
+
+    private final ForkJoinPool pool;
+    private final Correcteur correcteur = new Correcteur();
+
+    /** Correcteur utilisant un thread par processeur **/
+    public BatchGrader() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public BatchGrader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Evalue chaque script sur chaque niveau.
+     *
+     * @param scripts Sources des scripts, par nom.
+     * @param niveaux Identifiants des niveaux.
+     * @return Les évaluations, script par script puis niveau par niveau.
+     */
+    public List<Evaluation> evaluer(Map<String, String> scripts, int[] niveaux) throws InterruptedException {
+        // Les cartes sont chargées une fois pour toutes avant de lancer les threads
+        for (int niveau : niveaux) Correcteur.verifier(niveau);
+
+        List<Callable<Evaluation>> taches = new ArrayList<>(scripts.size() * niveaux.length);
+        for (Map.Entry<String, String> script : scripts.entrySet())
+            for (int niveau : niveaux)
+                taches.add(() -> correcteur.evaluer(script.getKey(), script.getValue(), niveau));
+
+        List<Evaluation> evaluations = new ArrayList<>(taches.size());
+        for (Future<Evaluation> f : pool.invokeAll(taches)) {
+            try {
+                evaluations.add(f.get());
+            } catch (ExecutionException ex) {
+                // Correcteur.evaluer() rattrape déjà les exceptions de la simulation
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+        return evaluations;
+    }
+
+    /** Ferme le pool de threads du correcteur **/
+    public void fermer() {
+        pool.shutdown();
+    }
+
+    /* Ligne de commande
+     * =================================== */
+
+    /** Lit les scripts (*.rk) d'un dossier, par ordre alphabétique **/
+    public static Map<String, String> lireScripts(Path dossier) throws IOException {
+        Map<String, String> scripts = new TreeMap<>();
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, "*.rk")) {
+            for (Path f : fichiers)
+                scripts.put(f.getFileName().toString(), new String(Files.readAllBytes(f), StandardCharsets.UTF_8));
+        }
+        return scripts;
+    }
+
+    /** Ecrit le rapport, en CSV ou en JSON **/
+    public static void ecrire(List<Evaluation> evaluations, boolean json, PrintStream sortie) {
+        if (json) {
+            sortie.println("[");
+            for (int i = 0; i < evaluations.size(); i++)
+                sortie.println("  " + evaluations.get(i).toJson() + (i < evaluations.size() - 1 ? "," : ""));
+            sortie.println("]");
+        } else {
+            sortie.println(Evaluation.ENTETE_CSV);
+            for (Evaluation e : evaluations) sortie.println(e.toCsv());
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage : BatchGrader dossier niveaux [--json] [-o fichier]");
+            System.exit(1);
+        }
+
+        String[] ids = args[1].split(",");
+        int[] niveaux = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) niveaux[i] = Integer.parseInt(ids[i].trim());
+
+        boolean json = false;
+        Path fichier = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--json")) json = true;
+            else if (args[i].equals("-o") && i + 1 < args.length) fichier = Paths.get(args[++i]);
+        }
+
+        Map<String, String> scripts = lireScripts(Paths.get(args[0]));
+        BatchGrader lot = new BatchGrader();
+
+        // Les affichages des scripts ne doivent pas se mêler au rapport
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        long debut = System.nanoTime();
+        List<Evaluation> evaluations = lot.evaluer(scripts, niveaux);
+        long duree = System.nanoTime() - debut;
+        lot.fermer();
+        System.setOut(stdout);
+
+        if (fichier != null) {
+            try (PrintStream sortie = new PrintStream(Files.newOutputStream(fichier), false, "UTF-8")) {
+                ecrire(evaluations, json, sortie);
+            }
+        } else {
+            ecrire(evaluations, json, System.out);
+        }
+
+        System.err.printf("%d évaluations en %.1f ms (%.0f par minute)%n", evaluations.size(), duree / 1e6,
+                evaluations.size() * 60e9 / Math.max(duree, 1));
+    }
+}
@@ -0,0 +1,58 @@
+package com.robokode.grading;
+
+import com.robokode.interpreter.Annulation;
+import com.robokode.model.Resultat;
+import com.robokode.model.Simulation;
+import com.robokode.utils.maps.MapInfo;
+import com.robokode.utils.maps.MapLoader;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Evalue des scripts sur les niveaux du tutoriel, depuis plusieurs threads :
+ * chaque thread garde ses propres simulations (une par niveau), les cartes
+ * n'étant que lues.
+ */
+public final class Correcteur {
+
+    // Simulations de chaque thread, par niveau : une simulation n'est pas partagée
+    private final ThreadLocal<Map<Integer, Simulation>> simulations = ThreadLocal.withInitial(TreeMap::new);
+
+    /**
+     * Vérifie qu'un niveau peut être évalué.
+     *
+     * @throws IllegalArgumentException Si le niveau n'existe pas ou n'est pas un niveau du tutoriel.
+     */
+    public static void verifier(int niveau) {
+        MapInfo info = MapLoader.Instance().getInfo(niveau);
+        if (info == null) throw new IllegalArgumentException("Niveau inconnu : " + niveau);
+        if (info.typeMap == MapInfo.MapType.MULTI)
+            throw new IllegalArgumentException("Niveau multijoueur : " + niveau);
+    }
+
+    /** Evalue un script sur un niveau, sur le thread courant **/
+    public Evaluation evaluer(String nom, String source, int niveau) {
+        return evaluer(nom, source, niveau, null);
+    }
+
+    /**
+     * Evalue un script sur un niveau, sur le thread courant : l'évaluation
+     * s'arrête avec l'issue ANNULE dès que la poignée est annulée.
+     */
+    public Evaluation evaluer(String nom, String source, int niveau, Annulation annulation) {
+        long debut = System.nanoTime();
+        try {
+            Resultat res = simulation(niveau).executer(source, annulation);
+            return Evaluation.de(nom, niveau, res, System.nanoTime() - debut);
+        } catch (RuntimeException | StackOverflowError ex) {
+            // Le script ne doit pas pouvoir faire échouer toute la correction
+            simulations.get().remove(niveau);
+            return Evaluation.echec(nom, niveau, ex, System.nanoTime() - debut);
+        }
+    }
+
+    private Simulation simulation(int niveau) {
+        return simulations.get().computeIfAbsent(niveau, n -> new Simulation(MapLoader.Instance().getInfo(n)));
+    }
+}
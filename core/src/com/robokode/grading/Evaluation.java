@@ -0,0 +1,102 @@
+package com.robokode.grading;
+
+import com.robokode.interpreter.Diagnostic;
+import com.robokode.model.Resultat;
+
+/**
+ * Evaluation d'un script sur un niveau : une ligne du rapport de correction.
+ */
+public final class Evaluation {
+    // Issue d'une évaluation qui a échoué avant d'obtenir un résultat
+    public static final String EXCEPTION = "EXCEPTION";
+
+    public final String script;
+    public final int niveau;
+
+    // Issue de la partie (cf. Resultat.Issue), ou EXCEPTION
+    public final String issue;
+
+    // Budget consommé, actions transmises à la vue, étoiles gagnées
+    public final long consommation;
+    public final int actions, etoiles;
+
+    // Evénements signalés au joueur (cf. Resultat.Evenement), séparés par des virgules
+    public final String evenements;
+
+    // Temps d'exécution, en nanosecondes
+    public final long nanos;
+
+    // Première erreur de syntaxe, ou message de l'exception (vide sinon)
+    public final String detail;
+
+    private Evaluation(String script, int niveau, String issue, long consommation, int actions, int etoiles,
+                       String evenements, long nanos, String detail) {
+        this.script = script;       this.niveau = niveau;
+        this.issue = issue;
+        this.consommation = consommation;
+        this.actions = actions;     this.etoiles = etoiles;
+        this.evenements = evenements;
+        this.nanos = nanos;         this.detail = detail;
+    }
+
+    /** Evaluation d'après le résultat de la simulation **/
+    public static Evaluation de(String script, int niveau, Resultat res, long nanos) {
+        String detail = "";
+        if (res.erreurs != null && !res.erreurs.isEmpty()) {
+            Diagnostic d = res.erreurs.get(0);
+            detail = (d.line >= 0 ? "ligne " + (d.line + 1) + " : " : "") + d.message;
+        }
+        StringBuilder evenements = new StringBuilder();
+        for (Resultat.Evenement evt : res.evenements) {
+            if (evenements.length() > 0) evenements.append(',');
+            evenements.append(evt.name());
+        }
+        return new Evaluation(script, niveau, res.issue.name(), res.consommation, res.actions.size(), res.etoiles,
+                evenements.toString(), nanos, detail);
+    }
+
+    /** Evaluation interrompue par une exception **/
+    public static Evaluation echec(String script, int niveau, Throwable ex, long nanos) {
+        return new Evaluation(script, niveau, EXCEPTION, 0, 0, 0, "", nanos, String.valueOf(ex));
+    }
+
+    /* Formats du rapport
+     * =================================== */
+
+    public static final String ENTETE_CSV = "script;niveau;issue;consommation;actions;etoiles;evenements;millis;detail";
+
+    public String toCsv() {
+        return csv(script) + ';' + niveau + ';' + issue + ';' + consommation + ';' + actions + ';' + etoiles
+                + ';' + evenements + ';' + String.format(java.util.Locale.ROOT, "%.3f", nanos / 1e6) + ';' + csv(detail);
+    }
+
+    public String toJson() {
+        return "{\"script\":" + json(script) + ",\"niveau\":" + niveau + ",\"issue\":" + json(issue)
+                + ",\"consommation\":" + consommation + ",\"actions\":" + actions + ",\"etoiles\":" + etoiles
+                + ",\"evenements\":" + json(evenements) + ",\"millis\":" + String.format(java.util.Locale.ROOT, "%.3f", nanos / 1e6)
+                + ",\"detail\":" + json(detail) + "}";
+    }
+
+    // Champ CSV : entre guillemets s'il contient un séparateur
+    private static String csv(String s) {
+        if (s.indexOf(';') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    static String json(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
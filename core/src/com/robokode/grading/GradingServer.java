@@ -0,0 +1,302 @@
+package com.robokode.grading;
+
+import com.robokode.interpreter.Annulation;
+import com.robokode.utils.maps.MapLoader;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service de correction : évalue un script sur un niveau du tutoriel, via HTTP,
+ * avec le même résultat que la validation dans le jeu.
+ *
+ *   POST /evaluer?niveau=N[&nom=...]   corps : le script (UTF-8)
+ *        200 : évaluation (JSON, cf. Evaluation)
+ *        400 : niveau absent ou invalide, 413 : script trop long
+ *        429 : file d'attente pleine, 504 : délai dépassé
+ *   GET  /etat                         compteurs du service (JSON)
+ *
+ * Les demandes passent par une file bornée, traitée par un nombre fixe de
+ * workers : quand la file est pleine, les nouvelles demandes sont refusées
+ * aussitôt plutôt que d'allonger l'attente de toutes les autres. Une demande
+ * expirée est retirée de la file, ou annulée si son évaluation a commencé.
+ *
+ * Usage : GradingServer [port] [--workers n] [--file n] [--delai ms] [--hote adresse]
+ */
+public final class GradingServer {
+
+    public static final int PORT = 8090;
+
+    // Taille maximale d'un script, en octets
+    private static final int TAILLE_MAX = 64 * 1024;
+
+    private final HttpServer serveur;
+
+    // Workers d'évaluation, et leur file d'attente bornée
+    private final ThreadPoolExecutor workers;
+    private final ArrayBlockingQueue<Runnable> file;
+
+    // Threads HTTP : lecture des demandes et mise en file
+    private final ExecutorService entrees;
+
+    // Expiration des demandes
+    private final ScheduledExecutorService minuteur;
+    private final long delai;
+
+    private final Correcteur correcteur = new Correcteur();
+
+    // Demandes en cours d'évaluation, annulées à l'arrêt du service
+    private final Set<Demande> enCours = ConcurrentHashMap.newKeySet();
+
+    // Compteurs du service
+    private final AtomicLong acceptees = new AtomicLong(), rejetees = new AtomicLong(),
+                             expirees = new AtomicLong(), terminees = new AtomicLong();
+
+    /**
+     * @param adresse    Adresse d'écoute (port 0 : port libre quelconque).
+     * @param nbWorkers  Nombre d'évaluations simultanées.
+     * @param tailleFile Nombre de demandes en attente au-delà duquel on refuse (429).
+     * @param delai      Délai de réponse d'une demande, en millisecondes (504 au-delà).
+     */
+    public GradingServer(InetSocketAddress adresse, int nbWorkers, int tailleFile, long delai) throws IOException {
+        this.delai = delai;
+        file = new ArrayBlockingQueue<>(tailleFile);
+        workers = new ThreadPoolExecutor(nbWorkers, nbWorkers, 0, TimeUnit.MILLISECONDS, file,
+                threads("RoboKode-correction"), new ThreadPoolExecutor.AbortPolicy());
+        workers.prestartAllCoreThreads();
+        entrees = Executors.newFixedThreadPool(Math.min(nbWorkers, 4), threads("RoboKode-http"));
+        minuteur = Executors.newSingleThreadScheduledExecutor(threads("RoboKode-delais"));
+
+        serveur = HttpServer.create(adresse, 0);
+        serveur.createContext("/evaluer", this::evaluer);
+        serveur.createContext("/etat", this::etat);
+        serveur.setExecutor(entrees);
+    }
+
+    public void demarrer() {
+        serveur.start();
+    }
+
+    /** Arrête le service : les évaluations en cours sont annulées, sans réponse **/
+    public void arreter() {
+        serveur.stop(0);
+        for (Demande demande : enCours) demande.annulation.annuler();
+        workers.shutdownNow();
+        minuteur.shutdownNow();
+        entrees.shutdown();
+    }
+
+    public InetSocketAddress getAdresse() {
+        return serveur.getAddress();
+    }
+
+    /* Requêtes
+     * =================================== */
+
+    private void evaluer(HttpExchange echange) throws IOException {
+        try {
+            if (!echange.getRequestMethod().equals("POST")) {
+                envoyer(echange, 405, erreur("Méthode attendue : POST"));
+                return;
+            }
+
+            // Paramètres : niveau, et nom du script (facultatif)
+            Map<String, String> params = parametres(echange.getRequestURI().getRawQuery());
+            int niveau;
+            try {
+                niveau = Integer.parseInt(params.getOrDefault("niveau", ""));
+                Correcteur.verifier(niveau);
+            } catch (IllegalArgumentException ex) {
+                envoyer(echange, 400, erreur("Niveau invalide : " + params.get("niveau")));
+                return;
+            }
+
+            String source = lire(echange.getRequestBody());
+            if (source == null) {
+                envoyer(echange, 413, erreur("Script trop long (" + TAILLE_MAX + " octets au plus)"));
+                return;
+            }
+
+            // Mise en file : la réponse est envoyée par le worker, ou à l'expiration du délai
+            Demande demande = new Demande(echange, params.getOrDefault("nom", "script"), source, niveau);
+            demande.minuterie = minuteur.schedule(demande::expirer, delai, TimeUnit.MILLISECONDS);
+            try {
+                workers.execute(demande);
+                acceptees.incrementAndGet();
+            } catch (RejectedExecutionException ex) {
+                demande.minuterie.cancel(false);
+                rejetees.incrementAndGet();
+                echange.getResponseHeaders().set("Retry-After", "1");
+                envoyer(echange, 429, erreur("File d'attente pleine"));
+            }
+        } catch (RuntimeException ex) {
+            envoyer(echange, 500, erreur(String.valueOf(ex)));
+        }
+    }
+
+    private void etat(HttpExchange echange) throws IOException {
+        envoyer(echange, 200, "{\"workers\":" + workers.getCorePoolSize() + ",\"actifs\":" + workers.getActiveCount()
+                + ",\"file\":" + file.size() + ",\"capacite\":" + (file.size() + file.remainingCapacity())
+                + ",\"acceptees\":" + acceptees.get() + ",\"rejetees\":" + rejetees.get()
+                + ",\"expirees\":" + expirees.get() + ",\"terminees\":" + terminees.get() + "}");
+    }
+
+    /**
+     * Demande en attente d'évaluation : elle reçoit une seule réponse, soit
+     * l'évaluation, soit l'expiration du délai, qui annule l'évaluation.
+     */
+    private final class Demande implements Runnable {
+        final HttpExchange echange;
+        final String nom, source;
+        final int niveau;
+        final AtomicBoolean repondue = new AtomicBoolean();
+        final Annulation annulation = new Annulation();
+        volatile ScheduledFuture<?> minuterie;
+
+        Demande(HttpExchange echange, String nom, String source, int niveau) {
+            this.echange = echange;
+            this.nom = nom;     this.source = source;
+            this.niveau = niveau;
+        }
+
+        @Override
+        public void run() {
+            // Demande expirée pendant l'attente : on ne l'évalue pas
+            if (repondue.get()) return;
+
+            enCours.add(this);
+            try {
+                Evaluation evaluation = correcteur.evaluer(nom, source, niveau, annulation);
+                minuterie.cancel(false);
+                if (repondre(200, evaluation.toJson())) terminees.incrementAndGet();
+            } finally {
+                enCours.remove(this);
+            }
+        }
+
+        void expirer() {
+            // Encore en file : on libère sa place, sinon on arrête son évaluation
+            workers.remove(this);
+            annulation.annuler();
+            if (repondre(504, erreur("Délai dépassé (" + delai + " ms)"))) expirees.incrementAndGet();
+        }
+
+        boolean repondre(int code, String corps) {
+            if (!repondue.compareAndSet(false, true)) return false;
+            envoyer(echange, code, corps);
+            return true;
+        }
+    }
+
+    /* Utilitaires
+     * =================================== */
+
+    private static void envoyer(HttpExchange echange, int code, String corps) {
+        byte[] octets = corps.getBytes(StandardCharsets.UTF_8);
+        try {
+            echange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            echange.sendResponseHeaders(code, octets.length);
+            try (OutputStream sortie = echange.getResponseBody()) {
+                sortie.write(octets);
+            }
+        } catch (IOException ex) {
+            // Le client est parti : rien à faire
+        } finally {
+            echange.close();
+        }
+    }
+
+    private static String erreur(String message) {
+        return "{\"erreur\":" + Evaluation.json(message) + "}";
+    }
+
+    // Corps de la requête, ou null s'il dépasse TAILLE_MAX
+    private static String lire(InputStream entree) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        byte[] tampon = new byte[8192];
+        int n;
+        while ((n = entree.read(tampon)) >= 0) {
+            octets.write(tampon, 0, n);
+            if (octets.size() > TAILLE_MAX) return null;
+        }
+        return new String(octets.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parametres(String requete) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        if (requete == null) return params;
+        for (String p : requete.split("&")) {
+            int egal = p.indexOf('=');
+            if (egal > 0)
+                params.put(URLDecoder.decode(p.substring(0, egal), "UTF-8"), URLDecoder.decode(p.substring(egal + 1), "UTF-8"));
+        }
+        return params;
+    }
+
+    private static ThreadFactory threads(String nom) {
+        AtomicInteger numero = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, nom + "-" + numero.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /* Ligne de commande
+     * =================================== */
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = PORT;
+        int nbWorkers = Runtime.getRuntime().availableProcessors();
+        int tailleFile = 64;
+        long delai = 5000;
+        InetAddress hote = InetAddress.getLoopbackAddress();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers": nbWorkers = Integer.parseInt(args[++i]); break;
+                case "--file":    tailleFile = Integer.parseInt(args[++i]); break;
+                case "--delai":   delai = Long.parseLong(args[++i]); break;
+                case "--hote":    hote = InetAddress.getByName(args[++i]); break;
+                default:          port = Integer.parseInt(args[i]);
+            }
+        }
+
+        // Les cartes sont chargées avant d'accepter des demandes
+        MapLoader.Instance();
+
+        GradingServer service = new GradingServer(new InetSocketAddress(hote, port), nbWorkers, tailleFile, delai);
+        Runtime.getRuntime().addShutdownHook(new Thread(service::arreter));
+        service.demarrer();
+        InetSocketAddress adresse = service.getAdresse();
+        System.err.println("Service de correction : http://" + adresse.getHostString() + ":" + adresse.getPort() + "/evaluer ("
+                + nbWorkers + " workers, file de " + tailleFile + ", délai " + delai + " ms)");
+
+        // Les threads du service sont des démons : on attend l'arrêt de la JVM
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,49 @@
+package com.robokode.interpreter;
+
+/**
+ * Poignée d'annulation d'une exécution. Un autre thread (l'IHM, le service
+ * de correction) peut l'annuler pendant que le script tourne, et une échéance
+ * peut l'annuler d'elle-même. L'interpréteur la consulte à chaque reprise et
+ * à chaque saut, comme les plafonds du budget : l'exécution s'arrête alors
+ * sur un message ANNULE, sans aller jusqu'au bout.
+ */
+public final class Annulation {
+
+    // Annulation demandée par un autre thread
+    private volatile boolean demandee;
+
+    // Echéance (System.nanoTime), si elle existe
+    private final boolean avecEcheance;
+    private final long echeance;
+
+    /** Poignée sans échéance : seul annuler() arrête l'exécution **/
+    public Annulation() {
+        this.avecEcheance = false;
+        this.echeance = 0;
+    }
+
+    private Annulation(long echeance) {
+        this.avecEcheance = true;
+        this.echeance = echeance;
+    }
+
+    /** Poignée qui s'annule d'elle-même au bout d'un délai, en millisecondes **/
+    public static Annulation apres(long millis) {
+        return new Annulation(System.nanoTime() + millis * 1000000L);
+    }
+
+    /** Demande l'arrêt de l'exécution, depuis n'importe quel thread **/
+    public void annuler() {
+        demandee = true;
+    }
+
+    /** Vrai si l'exécution doit s'arrêter **/
+    public boolean isAnnulee() {
+        return demandee || (avecEcheance && System.nanoTime() - echeance >= 0);
+    }
+
+    // Raison de l'arrêt, transmise dans le message ANNULE
+    String raison() {
+        return demandee ? "Exécution annulée" : "Délai d'exécution dépassé";
+    }
+}
@@ -0,0 +1,162 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.Interpreter.DeplacerStatement;
+import com.robokode.interpreter.Interpreter.MeleeStatement;
+import com.robokode.interpreter.Interpreter.RechargerStatement;
+import com.robokode.interpreter.Interpreter.Statement;
+import com.robokode.interpreter.Interpreter.TirerStatement;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Budget d'exécution d'un script, déclaré par carte (cf. MapInfo). Chaque
+ * instruction exécutée consomme un coût selon sa nature : action du robot,
+ * interrogation d'un capteur, saut, ou autre instruction, à laquelle s'ajoute
+ * le coût de chaque opérateur de ses expressions. L'exécution s'arrête sur un
+ * LOOP_LIMIT quand la somme dépasse la limite.
+ *
+ * Le budget peut aussi plafonner le temps passé dans l'interpréteur et la
+ * mémoire allouée pendant une exécution (0 : pas de plafond). Ces plafonds ne
+ * sont vérifiés qu'aux sauts, seuls à pouvoir faire boucler un script.
+ *
+ * Le budget par défaut (500, une unité par instruction, opérateurs gratuits,
+ * sans plafond) reproduit l'ancienne limite de 500 instructions.
+ */
+public final class Budget {
+
+    /** Budget utilisé quand la carte n'en déclare pas **/
+    public static final Budget DEFAUT = new Budget(500);
+
+    // Accès à la mémoire allouée par thread, si la JVM le permet
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocation();
+
+    /**
+     * Budget ne comptant que les instructions, une unité chacune, sans plafond.
+     */
+    public Budget(int limite) {
+        this(limite, 1, 1, 1, 1, 0, 0, 0);
+    }
+
+    /**
+     * @param limite          Coût total autorisé pour une exécution.
+     * @param coutAction      Coût d'un déplacement, d'une attaque ou d'un rechargement.
+     * @param coutCapteur     Coût d'une interrogation de capteur.
+     * @param coutInstruction Coût d'une autre instruction (assignation, condition, pour...).
+     * @param coutSaut        Coût d'un saut (goto, finpour, fintantque, sinon).
+     * @param coutOperateur   Coût ajouté par opérateur des expressions d'une instruction.
+     * @param maxMillis       Temps maximal passé dans l'interpréteur, en ms (0 : aucun).
+     * @param maxAllocation   Mémoire maximale allouée, en octets (0 : aucune).
+     */
+    public Budget(int limite, int coutAction, int coutCapteur, int coutInstruction,
+                  int coutSaut, int coutOperateur, long maxMillis, long maxAllocation) {
+        if (limite < 0 || coutAction < 0 || coutCapteur < 0 || coutInstruction < 0
+                || coutSaut < 0 || coutOperateur < 0 || maxMillis < 0 || maxAllocation < 0)
+            throw new IllegalArgumentException("Budget négatif");
+
+        this.limite = limite;
+        this.coutAction = coutAction;
+        this.coutCapteur = coutCapteur;
+        this.coutInstruction = coutInstruction;
+        this.coutSaut = coutSaut;
+        this.coutOperateur = coutOperateur;
+        this.maxNanos = maxMillis * 1000000L;
+        this.maxAllocation = (ALLOCATION != null) ? maxAllocation : 0;
+    }
+
+    public int getLimite() {
+        return limite;
+    }
+
+    /** Vrai si le temps ou la mémoire de l'exécution sont plafonnés **/
+    public boolean isPlafonne() {
+        return maxNanos > 0 || maxAllocation > 0;
+    }
+
+    /**
+     * Coût de chaque instruction du programme (indexé par pc / INSTR_WIDTH).
+     * Le coût est calculé sur le code avant optimisation : une instruction
+     * optimisée paie celui de chacune de ses instructions d'origine.
+     * Les coûts sont sur 64 bits : de grands coûts déclarés par la carte,
+     * multipliés par les opérateurs ou cumulés par les sauts fusionnés, ne
+     * peuvent pas déborder.
+     */
+    long[] couts(Program program) {
+        long[] base = coutsSource(program);
+
+        long[] couts = new long[program.origines.length];
+        for (int i = 0; i < couts.length; i++)
+            for (int origine : program.origines[i]) couts[i] += base[origine];
+
+        return couts;
+    }
+
+    // Coût de chaque instruction du code avant optimisation
+    private long[] coutsSource(Program program) {
+        final int[] code = program.source;
+        long[] couts = new long[code.length / Interpreter.INSTR_WIDTH];
+
+        for (int i = 0; i < couts.length; i++) {
+            int pc = i * Interpreter.INSTR_WIDTH;
+            switch (code[pc]) {
+                case Interpreter.OP_EXEC:
+                    Statement statement = program.statements[code[pc+1]];
+                    if (statement instanceof DeplacerStatement || statement instanceof TirerStatement
+                            || statement instanceof MeleeStatement || statement instanceof RechargerStatement)
+                        couts[i] = coutAction;
+                    else
+                        couts[i] = coutInstruction + (long) coutOperateur * program.operateurs[code[pc+1]];
+                break;
+                case Interpreter.OP_JUMP:
+                    couts[i] = coutSaut;
+                break;
+                case Interpreter.OP_JUMP_IF_FALSE:
+                case Interpreter.OP_TANTQUE_INFINI:
+                case Interpreter.OP_POUR:
+                case Interpreter.OP_POUR_BORNE:
+                    couts[i] = coutInstruction + (long) coutOperateur * program.operateurs[code[pc+1]];
+                break;
+                case Interpreter.OP_DETECTER:
+                case Interpreter.OP_ESTVIVANT:
+                    couts[i] = coutCapteur;
+                break;
+            }
+        }
+
+        return couts;
+    }
+
+    // Mémoire allouée par le thread courant depuis son démarrage
+    static long allocationThread() {
+        return (ALLOCATION != null) ? ALLOCATION.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocation() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                if (sunBean.isThreadAllocatedMemorySupported()) {
+                    sunBean.setThreadAllocatedMemoryEnabled(true);
+                    return sunBean;
+                }
+            }
+        } catch (LinkageError | RuntimeException e) {
+            // JVM sans com.sun.management : pas de plafond d'allocation
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "budget " + limite + " (action " + coutAction + ", capteur " + coutCapteur
+                + ", instruction " + coutInstruction + ", saut " + coutSaut
+                + ", opérateur " + coutOperateur + ")"
+                + (maxNanos > 0 ? ", " + maxNanos / 1000000L + " ms" : "")
+                + (maxAllocation > 0 ? ", " + maxAllocation + " octets" : "");
+    }
+
+    final int limite;
+    final int coutAction, coutCapteur, coutInstruction, coutSaut, coutOperateur;
+    final long maxNanos, maxAllocation;
+}
@@ -0,0 +1,201 @@
+package com.robokode.interpreter;
+
+import static com.robokode.interpreter.ClassFileWriter.*;
+import static com.robokode.interpreter.Interpreter.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Second tier de l'interpréteur : traduit le tableau d'opcodes d'un Program
+ * en une classe JVM, que le JIT peut ensuite compiler comme n'importe quel
+ * code Java. Chaque instruction devient un bloc de bytecode et les sauts
+ * deviennent des goto : il n'y a plus de dispatch par switch.
+ *
+ * Les statements et conditions ne sont pas recompilés : le code généré les
+ * appelle directement (appels monomorphes pour le JIT). Le décompte des
+ * instructions, les gardes des capteurs et les pauses sont assurés par les
+ * mêmes méthodes que la boucle de dispatch (cf. CompiledCode) : les deux
+ * tiers produisent exactement les mêmes messages.
+ *
+ * La méthode générée commence par un tableswitch sur l'instruction d'entrée,
+ * pour reprendre l'exécution après une pause.
+ */
+final class BytecodeCompiler {
+
+    // Nombre d'exécutions d'un programme avant sa promotion (propriété robokode.tier2.seuil)
+    private static final int SEUIL = Integer.getInteger("robokode.tier2.seuil", 20);
+
+    // Au-delà, on reste à l'interprétation : les sauts du bytecode sont sur 16 bits
+    private static final int MAX_INSTRUCTIONS = 1500;
+
+    private static final String PAQUETAGE = "com/robokode/interpreter/";
+    private static final String CODE = PAQUETAGE + "CompiledCode";
+    private static final String CTX = "L" + PAQUETAGE + "ExecutionContext;";
+    private static final String STATEMENT = PAQUETAGE + "Interpreter$Statement";
+    private static final String EXPRESSION = PAQUETAGE + "Interpreter$Expression";
+    private static final String RUN = "(" + CTX + "[L" + STATEMENT + ";[L" + EXPRESSION + ";)V";
+
+    private static final AtomicInteger compteur = new AtomicInteger();
+
+    private BytecodeCompiler() { }
+
+    /** Seuil d'exécutions au-delà duquel un programme est promu **/
+    static int getSeuil() {
+        return SEUIL;
+    }
+
+    /**
+     * Traduit un programme en bytecode et instancie la classe générée.
+     *
+     * @return Le code généré, ou null si le programme ne peut pas être traduit.
+     */
+    static CompiledCode compiler(Program program) {
+        if (program.code.length / INSTR_WIDTH > MAX_INSTRUCTIONS) return null;
+
+        String nom = PAQUETAGE + "Programme$" + compteur.incrementAndGet();
+        try {
+            byte[] classe = generer(nom, program.code);
+            Class<?> c = new Chargeur().definir(nom.replace('/', '.'), classe);
+            return (CompiledCode) c.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // Echec de la génération ou de la vérification : on reste au premier tier
+            return null;
+        }
+    }
+
+    static byte[] generer(String nom, int[] code) {
+        ClassFileWriter cf = new ClassFileWriter(nom, CODE);
+
+        // Constructeur : super()
+        ClassFileWriter.Code init = cf.methode(ACC_PUBLIC, "<init>", "()V");
+        init.op(ALOAD_0);
+        init.invokespecial(CODE, "<init>", "()V");
+        init.op(RETURN);
+        init.fin(1, 1);
+
+        // run(ctx, statements, conditions) : locales 1, 2 et 3
+        ClassFileWriter.Code m = cf.methode(ACC_PUBLIC, "run", RUN);
+        int n = code.length / INSTR_WIDTH;
+
+        // Un label par instruction, plus un pour la fin du code
+        ClassFileWriter.Label[] labels = new ClassFileWriter.Label[n + 1];
+        for (int i = 0; i <= n; i++) labels[i] = new ClassFileWriter.Label();
+        ClassFileWriter.Label sortie = new ClassFileWriter.Label();
+
+        // Reprise : saut vers l'instruction d'entrée
+        m.op(ALOAD_1);
+        m.invokestatic(CODE, "entree", "(" + CTX + ")I");
+        m.tableswitch(labels, sortie);
+
+        for (int i = 0; i < n; i++) {
+            int pc = i * INSTR_WIDTH, suivant = pc + INSTR_WIDTH;
+            m.placer(labels[i]);
+
+            switch (code[pc]) {
+                case OP_EXEC:
+                    m.op(ALOAD_2);
+                    m.pousser(code[pc+1]);
+                    m.op(AALOAD);
+                    m.op(ALOAD_1);
+                    m.invokeinterface(STATEMENT, "execute", "(" + CTX + ")V", 2);
+                    compter(m, "compter", i, suivant, sortie);
+                break;
+                case OP_JUMP:
+                    compter(m, "sauter", i, code[pc+1], sortie);
+                    m.saut(GOTO, labels[code[pc+1] / INSTR_WIDTH]);
+                break;
+                case OP_JUMP_IF_FALSE:
+                case OP_TANTQUE_INFINI: {
+                    ClassFileWriter.Label vrai = new ClassFileWriter.Label();
+                    m.op(ALOAD_3);
+                    m.pousser(code[pc+1]);
+                    m.op(AALOAD);
+                    m.op(ALOAD_1);
+                    m.invokeinterface(EXPRESSION, "evaluateDouble", "(" + CTX + ")D", 2);
+                    m.op(DCONST_0);
+                    m.op(DCMPL);
+                    m.saut(IFNE, vrai);
+                    compter(m, "compter", i, code[pc+2], sortie);
+                    m.saut(GOTO, labels[code[pc+2] / INSTR_WIDTH]);
+                    m.placer(vrai);
+                    if (code[pc] == OP_TANTQUE_INFINI) {
+                        // Condition invariante vraie : la boucle ne se terminera pas
+                        m.op(ALOAD_1);
+                        m.pousser(pc);
+                        m.invokestatic(CODE, "diverger", "(" + CTX + "I)V");
+                        m.saut(GOTO, sortie);
+                    } else {
+                        compter(m, "compter", i, suivant, sortie);
+                    }
+                }
+                break;
+                case OP_POUR:
+                case OP_POUR_BORNE: {
+                    ClassFileWriter.Label continuer = new ClassFileWriter.Label();
+                    if (code[pc] == OP_POUR_BORNE) {
+                        m.op(ALOAD_1);
+                        m.pousser(code[pc+1]);
+                        m.pousser(pc);
+                        m.invokestatic(CODE, "borner", "(" + CTX + "II)Z");
+                        m.saut(IFNE, sortie);
+                    }
+                    m.op(ALOAD_1);
+                    m.pousser(code[pc+1]);
+                    m.invokestatic(CODE, "iterer", "(" + CTX + "I)Z");
+                    m.saut(IFNE, continuer);
+                    compter(m, "compter", i, code[pc+2], sortie);
+                    m.saut(GOTO, labels[code[pc+2] / INSTR_WIDTH]);
+                    m.placer(continuer);
+                    compter(m, "compter", i, suivant, sortie);
+                }
+                break;
+                case OP_DETECTER:
+                case OP_ESTVIVANT:
+                    // Garde fermée : on passe à l'instruction suivante, sans décompte
+                    m.op(ALOAD_1);
+                    m.pousser(pc);
+                    m.invokestatic(CODE, "capter", "(" + CTX + "I)Z");
+                    m.saut(IFEQ, labels[i + 1]);
+                    compter(m, "compter", i, suivant, sortie);
+                break;
+                default:
+                    throw new IllegalStateException("Opcode inconnu : " + code[pc]);
+            }
+        }
+
+        // Fin du code : on sauvegarde le compteur ordinal (cf. capteur passé en dernier)
+        m.placer(labels[n]);
+        m.op(ALOAD_1);
+        m.pousser(code.length);
+        m.invokestatic(CODE, "terminer", "(" + CTX + "I)V");
+        m.placer(sortie);
+        m.op(RETURN);
+        m.fin(4, 4);
+
+        return cf.toByteArray();
+    }
+
+    // Décompte de l'instruction : on sort si l'exécution doit s'arrêter
+    private static void compter(ClassFileWriter.Code m, String methode, int instruction, int pcSuivant,
+                                ClassFileWriter.Label sortie) {
+        m.op(ALOAD_1);
+        m.pousser(instruction);
+        m.pousser(pcSuivant);
+        m.invokestatic(CODE, methode, "(" + CTX + "II)Z");
+        m.saut(IFNE, sortie);
+    }
+
+    /**
+     * Un chargeur par classe générée : la classe peut être déchargée avec son
+     * programme quand celui-ci sort du ProgramCache.
+     */
+    private static final class Chargeur extends ClassLoader {
+        Chargeur() {
+            super(BytecodeCompiler.class.getClassLoader());
+        }
+
+        Class<?> definir(String nom, byte[] classe) {
+            return defineClass(nom, classe, 0, classe.length);
+        }
+    }
+}
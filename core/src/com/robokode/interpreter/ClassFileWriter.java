@@ -0,0 +1,342 @@
+package com.robokode.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ecrivain minimal de fichiers .class, juste suffisant pour le second tier de
+ * l'interpréteur : pool de constantes, méthodes et attribut Code avec labels.
+ *
+ * Les classes produites sont en version 49 (Java 5) : la JVM les vérifie par
+ * inférence de types, il n'y a donc pas de StackMapTable à calculer.
+ */
+final class ClassFileWriter {
+
+    /** Opcodes utilisés par le générateur **/
+    static final int ICONST_0 = 0x03, BIPUSH = 0x10, SIPUSH = 0x11, LDC = 0x12, LDC_W = 0x13;
+    static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d, AALOAD = 0x32;
+    static final int DCONST_0 = 0x0e, DCMPL = 0x97;
+    static final int IFEQ = 0x99, IFNE = 0x9a, GOTO = 0xa7, TABLESWITCH = 0xaa, RETURN = 0xb1;
+    static final int INVOKESPECIAL = 0xb7, INVOKESTATIC = 0xb8, INVOKEINTERFACE = 0xb9;
+
+    /** Drapeaux d'accès **/
+    static final int ACC_PUBLIC = 0x0001, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    // Tags du pool de constantes
+    private static final int CONSTANT_UTF8 = 1, CONSTANT_INTEGER = 3, CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10, CONSTANT_INTERFACE_METHODREF = 11, CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int VERSION = 49;
+
+    /**
+     * @param nom    Nom interne de la classe (ex : com/robokode/X).
+     * @param parent Nom interne de la super-classe.
+     */
+    ClassFileWriter(String nom, String parent) {
+        this.thisClass = classe(nom);
+        this.superClass = classe(parent);
+    }
+
+    /* Pool de constantes
+     * =================================== */
+
+    int utf8(String valeur) {
+        Integer index = constantes.get("U" + valeur);
+        if (index != null) return index;
+
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(valeur);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return enregistrer("U" + valeur);
+    }
+
+    int entier(int valeur) {
+        Integer index = constantes.get("I" + valeur);
+        if (index != null) return index;
+
+        try {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(valeur);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return enregistrer("I" + valeur);
+    }
+
+    int classe(String nom) {
+        Integer index = constantes.get("C" + nom);
+        if (index != null) return index;
+
+        int nomIndex = utf8(nom);
+        ecrire(CONSTANT_CLASS, nomIndex);
+        return enregistrer("C" + nom);
+    }
+
+    int methode(String proprietaire, String nom, String descripteur) {
+        return reference(CONSTANT_METHODREF, proprietaire, nom, descripteur);
+    }
+
+    int methodeInterface(String proprietaire, String nom, String descripteur) {
+        return reference(CONSTANT_INTERFACE_METHODREF, proprietaire, nom, descripteur);
+    }
+
+    private int reference(int tag, String proprietaire, String nom, String descripteur) {
+        String cle = tag + proprietaire + "." + nom + descripteur;
+        Integer index = constantes.get(cle);
+        if (index != null) return index;
+
+        int classeIndex = classe(proprietaire);
+        int natIndex = nameAndType(nom, descripteur);
+        ecrire(tag, classeIndex, natIndex);
+        return enregistrer(cle);
+    }
+
+    private int nameAndType(String nom, String descripteur) {
+        String cle = "N" + nom + ":" + descripteur;
+        Integer index = constantes.get(cle);
+        if (index != null) return index;
+
+        int nomIndex = utf8(nom), descIndex = utf8(descripteur);
+        ecrire(CONSTANT_NAME_AND_TYPE, nomIndex, descIndex);
+        return enregistrer(cle);
+    }
+
+    private void ecrire(int tag, int... u2) {
+        try {
+            pool.writeByte(tag);
+            for (int valeur : u2) pool.writeShort(valeur);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int enregistrer(String cle) {
+        int index = nbConstantes++;
+        constantes.put(cle, index);
+        return index;
+    }
+
+    /* Méthodes
+     * =================================== */
+
+    /**
+     * Ajoute une méthode dont le bytecode sera écrit dans le Code renvoyé.
+     */
+    Code methode(int acces, String nom, String descripteur) {
+        Code code = new Code(acces, utf8(nom), utf8(descripteur));
+        methodes.add(code);
+        return code;
+    }
+
+    /**
+     * @return Le contenu du fichier .class.
+     */
+    byte[] toByteArray() {
+        int codeAttr = utf8("Code");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+
+            out.writeShort(nbConstantes);
+            poolBytes.writeTo(out);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // champs
+
+            out.writeShort(methodes.size());
+            for (Code code : methodes) code.ecrire(out, codeAttr);
+
+            out.writeShort(0); // attributs
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Position dans le bytecode d'une méthode, résolue une fois placée.
+     */
+    static final class Label {
+        private int position = -1;
+    }
+
+    /**
+     * Bytecode d'une méthode. Les sauts vers des labels non encore placés sont
+     * résolus par fin().
+     */
+    final class Code {
+        private Code(int acces, int nom, int descripteur) {
+            this.acces = acces;
+            this.nom = nom;
+            this.descripteur = descripteur;
+        }
+
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        // Empile une constante entière avec l'instruction la plus courte
+        void pousser(int valeur) {
+            if (valeur >= -1 && valeur <= 5) {
+                u1(ICONST_0 + valeur);
+            } else if (valeur >= Byte.MIN_VALUE && valeur <= Byte.MAX_VALUE) {
+                u1(BIPUSH);     u1(valeur);
+            } else if (valeur >= Short.MIN_VALUE && valeur <= Short.MAX_VALUE) {
+                u1(SIPUSH);     u2(valeur);
+            } else {
+                int index = entier(valeur);
+                if (index < 256) {
+                    u1(LDC);    u1(index);
+                } else {
+                    u1(LDC_W);  u2(index);
+                }
+            }
+        }
+
+        void invokestatic(String proprietaire, String nom, String descripteur) {
+            u1(INVOKESTATIC);       u2(methode(proprietaire, nom, descripteur));
+        }
+
+        void invokespecial(String proprietaire, String nom, String descripteur) {
+            u1(INVOKESPECIAL);      u2(methode(proprietaire, nom, descripteur));
+        }
+
+        void invokeinterface(String proprietaire, String nom, String descripteur, int nbArgs) {
+            u1(INVOKEINTERFACE);    u2(methodeInterface(proprietaire, nom, descripteur));
+            u1(nbArgs);             u1(0);
+        }
+
+        // Saut conditionnel ou goto vers un label (offset sur 16 bits)
+        void saut(int opcode, Label cible) {
+            int position = taille;
+            u1(opcode);
+            renvoi(position, taille, cible, false);
+            u2(0);
+        }
+
+        // tableswitch sur [0, cibles.length - 1]
+        void tableswitch(Label[] cibles, Label defaut) {
+            int position = taille;
+            u1(TABLESWITCH);
+            while (taille % 4 != 0) u1(0);
+
+            renvoi(position, taille, defaut, true);     u4(0);
+            u4(0);                                      u4(cibles.length - 1);
+            for (Label cible : cibles) {
+                renvoi(position, taille, cible, true);  u4(0);
+            }
+        }
+
+        void placer(Label label) {
+            label.position = taille;
+        }
+
+        /**
+         * Termine la méthode : résolution des sauts.
+         *
+         * @throws IllegalStateException si un saut dépasse 16 bits ou la méthode 64 Ko.
+         */
+        void fin(int maxStack, int maxLocals) {
+            if (taille > 65535) throw new IllegalStateException("Méthode trop longue : " + taille);
+
+            for (int[] renvoi : renvois) {
+                Label cible = labels.get(renvoi[3]);
+                if (cible.position < 0) throw new IllegalStateException("Label non placé");
+
+                int offset = cible.position - renvoi[0];
+                if (renvoi[2] == 1) {
+                    patch(renvoi[1], 4, offset);
+                } else {
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE)
+                        throw new IllegalStateException("Saut trop long : " + offset);
+                    patch(renvoi[1], 2, offset);
+                }
+            }
+
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        int getTaille() {
+            return taille;
+        }
+
+        private void renvoi(int instruction, int position, Label cible, boolean large) {
+            labels.add(cible);
+            renvois.add(new int[]{ instruction, position, large ? 1 : 0, labels.size() - 1 });
+        }
+
+        private void patch(int position, int nbOctets, int valeur) {
+            for (int i = nbOctets - 1; i >= 0; i--) {
+                octets[position + i] = (byte) valeur;
+                valeur >>= 8;
+            }
+        }
+
+        private void ecrire(DataOutputStream out, int codeAttr) throws IOException {
+            out.writeShort(acces);
+            out.writeShort(nom);
+            out.writeShort(descripteur);
+
+            out.writeShort(1);
+            out.writeShort(codeAttr);
+            out.writeInt(2 + 2 + 4 + taille + 2 + 2);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(taille);
+            out.write(octets, 0, taille);
+            out.writeShort(0); // table des exceptions
+            out.writeShort(0); // attributs
+        }
+
+        private void u1(int valeur) {
+            if (taille == octets.length) {
+                byte[] plus = new byte[octets.length * 2];
+                System.arraycopy(octets, 0, plus, 0, taille);
+                octets = plus;
+            }
+            octets[taille++] = (byte) valeur;
+        }
+
+        private void u2(int valeur) {
+            u1(valeur >> 8);    u1(valeur);
+        }
+
+        private void u4(int valeur) {
+            u2(valeur >> 16);   u2(valeur);
+        }
+
+        private final int acces, nom, descripteur;
+        private int maxStack, maxLocals;
+
+        private byte[] octets = new byte[256];
+        private int taille = 0;
+
+        // Sauts à résoudre : {offset de l'instruction, position de l'offset, large, index du label}
+        private final List<int[]> renvois = new ArrayList<int[]>();
+        private final List<Label> labels = new ArrayList<Label>();
+    }
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> constantes = new HashMap<String, Integer>();
+    private int nbConstantes = 1;
+
+    private final int thisClass, superClass;
+    private final List<Code> methodes = new ArrayList<Code>();
+}
@@ -0,0 +1,78 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.Interpreter.Expression;
+import com.robokode.interpreter.Interpreter.Statement;
+
+/**
+ * Code d'un Program traduit en bytecode JVM par le BytecodeCompiler (second
+ * tier). La classe générée n'a aucun état : elle remplace la boucle de
+ * dispatch, et tout l'état d'exécution reste dans le contexte.
+ *
+ * La classe générée est chargée par son propre ClassLoader : elle n'est donc
+ * pas dans le même paquetage à l'exécution, d'où les méthodes publiques.
+ */
+public abstract class CompiledCode {
+
+    protected CompiledCode() { }
+
+    /**
+     * Exécute le programme à partir de ctx.pc, jusqu'à la fin du code, une
+     * pause ou le dépassement de la limite d'instructions.
+     */
+    public abstract void run(ExecutionContext ctx, Statement[] statements, Expression[] conditions);
+
+    /* Points d'entrée du code généré
+     * =================================== */
+
+    /** Index de l'instruction où reprendre l'exécution **/
+    public static int entree(ExecutionContext ctx) {
+        return ctx.pc / Interpreter.INSTR_WIDTH;
+    }
+
+    /**
+     * Fin d'une instruction : décompte de son coût et sauvegarde du compteur
+     * ordinal.
+     *
+     * @return Vrai si l'exécution doit s'arrêter (pause ou budget épuisé).
+     */
+    public static boolean compter(ExecutionContext ctx, int instruction, int pcSuivant) {
+        ctx.pc = pcSuivant;
+        return (ctx.consommation += ctx.couts[instruction]) > ctx.budget.limite || ctx.pauseFlag;
+    }
+
+    /** Fin d'un saut : comme compter(), avec vérification des plafonds du budget et de l'annulation **/
+    public static boolean sauter(ExecutionContext ctx, int instruction, int pcSuivant) {
+        if (ctx.surveille() && ctx.plafondAtteint()) {
+            ctx.pc = pcSuivant;
+            return true;
+        }
+        return compter(ctx, instruction, pcSuivant);
+    }
+
+    /** Fin du code atteinte : sauvegarde du compteur ordinal **/
+    public static void terminer(ExecutionContext ctx, int fin) {
+        ctx.pc = fin;
+    }
+
+    /** Entrée dans une boucle infinie (cf. LoopAnalyzer) : l'exécution s'arrête **/
+    public static void diverger(ExecutionContext ctx, int pc) {
+        Interpreter.diverger(ctx, pc);
+    }
+
+    /** Entrée dans un pour borné : vrai (l'exécution s'arrête) si le budget ne peut suffire **/
+    public static boolean borner(ExecutionContext ctx, int idPour, int pc) {
+        if (!Interpreter.borneDepassee(ctx, idPour)) return false;
+        ctx.pc = pc;
+        return true;
+    }
+
+    /** Itération du pour idPour : faux si on sort de la boucle **/
+    public static boolean iterer(ExecutionContext ctx, int idPour) {
+        return Interpreter.iterer(ctx, idPour);
+    }
+
+    /** Interrogation du capteur de l'instruction pc : faux si sa garde est fermée **/
+    public static boolean capter(ExecutionContext ctx, int pc) {
+        return Interpreter.capter(ctx, pc);
+    }
+}
@@ -0,0 +1,42 @@
+package com.robokode.interpreter;
+
+/**
+ * Erreur signalée par l'interpréteur, localisée dans le script.
+ * Les positions sont des offsets de caractères dans le texte source, fournis
+ * par le scanner : [start, end[ couvre le token fautif. Une erreur sans
+ * position (ex : survenue à l'exécution) a start = end = -1.
+ *
+ * Les lignes sont comptées à partir de 0.
+ */
+public final class Diagnostic {
+    public final String message;
+    public final String token;
+
+    // Vrai si l'erreur est dûe à un faux token
+    public final boolean wrongToken;
+
+    public final int line;
+    public final int start, end;
+
+    public Diagnostic(String message, String token, boolean wrongToken, int line, int start, int end) {
+        this.message = message;     this.token = token;
+        this.wrongToken = wrongToken;
+        this.line = line;
+        this.start = start;         this.end = end;
+    }
+
+    // Erreur sans position dans le script
+    public Diagnostic(String message, String token, boolean wrongToken) {
+        this(message, token, wrongToken, -1, -1, -1);
+    }
+
+    /** Vrai si l'erreur est localisée dans le script **/
+    public boolean hasPosition() {
+        return start >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return (hasPosition() ? (line + 1) + ":" + start + "-" + end + " " : "") + message + " " + token;
+    }
+}
@@ -0,0 +1,220 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.Interpreter.Statement;
+import com.robokode.interpreter.Interpreter.Value;
+import com.robokode.utils.Direction;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Etat d'une exécution d'un Program : frame des variables, compteur ordinal,
+ * état des boucles et échanges avec le contrôleur (pause, valeurs des capteurs).
+ *
+ * Le Program n'est jamais modifié pendant l'exécution : chaque exécution
+ * possède son propre contexte, et plusieurs contextes peuvent exécuter le même
+ * Program en parallèle sur des threads différents. Un contexte, lui, n'est
+ * utilisé que par un seul thread à la fois.
+ */
+public final class ExecutionContext {
+
+    /**
+     * Enuméré décrivant la raison pour laquelle le script est pausé
+     */
+    enum PauseState {
+        /** Actions admises **/
+        DEPLACEMENT, MELEE, TIRER, DETECTERENNEMI, ESTVIVANT, RECHARGER,
+
+        /** Erreurs à l'exécution **/
+        RUNTIME_DIV0, RUNTIME_UNDEF, RUNTIME_LOOP
+    }
+
+    public ExecutionContext(Program program) {
+        this(program, Budget.DEFAUT);
+    }
+
+    public ExecutionContext(Program program, Budget budget) {
+        this.program = program;
+        this.budget = budget;
+        this.couts = program.couts(budget);
+
+        // On alloue la frame : une case par variable résolue par le parseur
+        // => les slots typés numériques sont stockés à part, sans boxing
+        variables = new Value[program.nbSlots];
+        numbers = new double[program.nbSlots];
+        pourIter = new boolean[program.statements.length];
+        capteurs = new Value[program.nbCapteurs];
+
+        errors = new ArrayList<Diagnostic>();
+    }
+
+    /** Programme exécuté par ce contexte **/
+    public Program getProgram() {
+        return program;
+    }
+
+    /** Budget de l'exécution **/
+    public Budget getBudget() {
+        return budget;
+    }
+
+    /** Coût consommé jusqu'ici par l'exécution **/
+    public long getConsommation() {
+        return consommation;
+    }
+
+    /** Profile l'exécution (null : pas de profilage) **/
+    public void setProfile(Profile profil) {
+        if (profil != null && profil.getProgram() != program)
+            throw new IllegalArgumentException("Le profil ne porte pas sur le programme exécuté");
+        this.profil = profil;
+    }
+
+    /** Trace l'exécution (null : pas de trace) **/
+    public void setTrace(TraceSink trace) {
+        this.trace = trace;
+    }
+
+    /** Rend l'exécution annulable (null : elle ne s'arrête que d'elle-même) **/
+    public void setAnnulation(Annulation annulation) {
+        this.annulation = annulation;
+    }
+
+    /** Définit l'accès au monde utilisé par les capteurs (null : interrogation par pause) **/
+    public void setWorldQuery(WorldQuery monde) {
+        this.monde = monde;
+    }
+
+    /** Erreurs survenues à l'exécution (sans position dans le script) **/
+    public ArrayList<Diagnostic> getErrors() {
+        return errors;
+    }
+
+    // Ajoute une erreur à l'exécution (ex : variable invalide)
+    void addError(String error, String errToken, boolean wrongToken) {
+        errors.add(new Diagnostic(error, errToken, wrongToken));
+    }
+
+    // Début d'un passage dans l'interpréteur : on relève l'horloge et l'allocation
+    void demarrerMesure() {
+        if (!budget.isPlafonne()) return;
+        debutNanos = System.nanoTime();
+        if (budget.maxAllocation > 0) debutAllocation = Budget.allocationThread();
+    }
+
+    // Fin d'un passage : on cumule ce qui a été consommé, les pauses ne comptent pas
+    void arreterMesure() {
+        if (!budget.isPlafonne()) return;
+        nanos += System.nanoTime() - debutNanos;
+        if (budget.maxAllocation > 0) allocation += Budget.allocationThread() - debutAllocation;
+    }
+
+    // Vrai si les sauts doivent vérifier les plafonds du budget ou l'annulation
+    boolean surveille() {
+        return budget.isPlafonne() || annulation != null;
+    }
+
+    // Vrai (et note l'arrêt) si l'exécution a été annulée
+    boolean annulee() {
+        if (annulation != null && annulation.isAnnulee()) annule = true;
+        return annule;
+    }
+
+    /**
+     * Vérifie l'annulation, puis les plafonds de temps et d'allocation du
+     * budget, appelée aux sauts. Renvoie vrai (et note la raison) si
+     * l'exécution doit s'arrêter.
+     */
+    boolean plafondAtteint() {
+        if (annulee()) return true;
+
+        if (budget.maxNanos > 0 && nanos + System.nanoTime() - debutNanos > budget.maxNanos) {
+            depassement = "Temps d'exécution maximal dépassé";
+        } else if (budget.maxAllocation > 0
+                && allocation + Budget.allocationThread() - debutAllocation > budget.maxAllocation) {
+            depassement = "Mémoire maximale allouée dépassée";
+        }
+        return depassement != null;
+    }
+
+    /**
+     * Direction d'un déplacement ou d'un tir dont la variable ne contient pas
+     * une direction. Comme dans l'interpréteur d'origine, où le statement
+     * remplaçait alors sa propre direction : aucune (null) la première fois
+     * que le statement s'exécute, HAUTDROIT les fois suivantes. L'état est
+     * gardé ici, le Program partagé n'étant jamais modifié.
+     */
+    Direction directionParDefaut(Statement st) {
+        if (directionsParDefaut == null)
+            directionsParDefaut = Collections.newSetFromMap(new IdentityHashMap<Statement, Boolean>());
+        return directionsParDefaut.add(st) ? null : Direction.HD;
+    }
+
+    // Lecteur de l'entrée standard, créé au premier "input"
+    BufferedReader lineIn() {
+        if (lineIn == null) lineIn = new BufferedReader(new InputStreamReader(System.in));
+        return lineIn;
+    }
+
+    final Program program;
+
+    // Frame des variables, indexée par les slots résolus au parsing
+    final Value[] variables;
+    final double[] numbers;
+
+    // Etat des boucles pour : true si la boucle a déjà été entrée une fois (indexé comme les statements)
+    final boolean[] pourIter;
+
+    // Compteur ordinal : offset de la prochaine instruction dans code
+    int pc;
+
+    // Budget de l'exécution, et coût de chaque instruction (indexé par pc / INSTR_WIDTH)
+    final Budget budget;
+    final long[] couts;
+
+    // Coût consommé par les instructions exécutées : sur 64 bits, pour que de grands coûts ne le fassent pas déborder
+    long consommation;
+
+    // Vrai dès que l'exécution a commencé
+    boolean demarre;
+
+    // Temps et mémoire consommés, et raison de l'arrêt si un plafond est dépassé
+    private long nanos, debutNanos, allocation, debutAllocation;
+    String depassement;
+
+    // Poignée d'annulation (null : exécution non annulable), et vrai si elle a arrêté l'exécution
+    Annulation annulation;
+    boolean annule;
+
+    /** Interactions avec le contrôleur **/
+    // Booléen signalant la nécessité de pauser l'exécution du script
+    boolean pauseFlag;
+    PauseState pauseState;
+    Direction dirJ, dirVar;
+    int boolVal;
+
+    // Valeurs des capteurs (detecterEnnemi\estVivant) obtenues du contrôleur, une case par capteur
+    final Value[] capteurs;
+
+    // Offset de l'interrogation de capteur en attente de réponse, -1 si aucune
+    int pcCapteur = -1;
+
+    // Accès direct au monde pour les capteurs : sans lui, on interroge le contrôleur par une pause
+    WorldQuery monde;
+
+    // Profil de l'exécution, null si elle n'est pas profilée
+    Profile profil;
+
+    // Destinataire de la trace de l'exécution, null si elle n'est pas tracée
+    TraceSink trace;
+
+    // Statements déjà exécutés sans direction valide (cf. directionParDefaut), créé au premier besoin
+    private Set<Statement> directionsParDefaut;
+
+    private final ArrayList<Diagnostic> errors;
+    private BufferedReader lineIn;
+}
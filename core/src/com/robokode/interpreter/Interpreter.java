@@ -1,9 +1,7 @@
 package com.robokode.interpreter;
 
 import com.robokode.utils.Direction;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.*;
 
 /**
@@ -12,194 +10,29 @@ import java.util.*;
 public class Interpreter {
 
     // Liste contenant l'ensemble des erreurs syntaxiques repérées à l'analyse
-    private ArrayList<String[]> errMsg;
+    private ArrayList<Diagnostic> errMsg;
 
     // Booléen signalant la présence d'erreurs dans le code
     private boolean flagErrors;
 
-    /** Interactions avec le contrôleur **/
-    // Booléen signalant la nécessité de pauser l'exécution du script
-    private boolean pauseFlag;
-    private enum PauseState {
-        /** Actions admises **/
-        DEPLACEMENT, MELEE, TIRER, DETECTERENNEMI, ESTVIVANT, RECHARGER,
+    // Contexte de l'exécution en cours
+    private ExecutionContext ctx;
 
-        /** Erreurs à l'exécution **/
-        RUNTIME_DIV0, RUNTIME_UNDEF, RUNTIME_LOOP
-        // énuméré décrivant la raison pour laquelle le script est pausé
-    }
-    private PauseState pauseState;
-    private Direction dirJ, dirVar;
-    private int boolVal;
+    // Accès au monde transmis aux contextes créés
+    private WorldQuery monde;
 
-    // Liste des statements du programme parsé
-    private List<Statement> instructions;
+    // Budget d'exécution transmis aux contextes créés
+    private Budget budget = Budget.DEFAUT;
 
-    // Limite d'instructions à exécuter (hard codée)
-    private static final int INSTR_LIMIT = 500;
+    // Profilage des exécutions (optionnel), et profil de la dernière exécution
+    private boolean profilage;
+    private Profile profil;
 
-    // Compteur du nombre d'instructions exécutées
-    private int nbInstr = 0;
+    // Destinataire de la trace des prochaines exécutions (optionnel)
+    private TraceSink trace;
 
-   // Tokenizing (lexing) -----------------------------------------------------
-    
-    /**
-     * This function takes a script as a string of characters and chunks it into
-     * a sequence of tokens. Each token is a meaningful unit of program, like a
-     * variable name, a number, a string, or an operator.
-     */
-    private static List<Token> tokenize(String source) {
-        List<Token> tokens = new ArrayList<Token>();
-        
-        String token = "";
-        TokenizeState state = TokenizeState.DEFAULT;
-        
-        // Many tokens are a single character, like operators and ().
-        String charTokens = "\n=+-*/<>()!";
-        TokenType[] tokenTypes = { TokenType.LINE, TokenType.EQUALS,
-            TokenType.OPERATOR, TokenType.OPERATOR, TokenType.OPERATOR,
-            TokenType.OPERATOR, TokenType.OPERATOR, TokenType.OPERATOR,
-            TokenType.LEFT_PAREN, TokenType.RIGHT_PAREN, TokenType.OPERATOR
-        };
-        
-        // Scan through the code one character at a time, building up the list
-        // of tokens.
-        for (int i = 0; i < source.length(); i++) {
-            char c = source.charAt(i);
-            switch (state) {
-            case DEFAULT:
-                if (charTokens.indexOf(c) != -1) {
-                    tokens.add(new Token(Character.toString(c),
-                        tokenTypes[charTokens.indexOf(c)]));
-                } else if (Character.isLetter(c)) {
-                    token += c;
-                    state = TokenizeState.WORD;
-                } else if (Character.isDigit(c)) {
-                    token += c;
-                    state = TokenizeState.NUMBER;
-                } else if (c == '"') {
-                    state = TokenizeState.STRING;
-                } else if (c == '#') {
-                    state = TokenizeState.COMMENT;
-                }
-                break;
-                
-            case WORD:
-                if (Character.isLetterOrDigit(c)) {
-                    token += c;
-                } else if (c == ':') {
-                    tokens.add(new Token(token, TokenType.LABEL));
-                    token = "";
-                    state = TokenizeState.DEFAULT;
-                } else {
-                    tokens.add(new Token(token, TokenType.WORD));
-                    token = "";
-                    state = TokenizeState.DEFAULT;
-                    i--; // Reprocess this character in the default state.
-                }
-                break;
-                
-            case NUMBER:
-                // HACK: Negative numbers and floating points aren't supported.
-                // To get a negative number, just do 0 - <your number>.
-                // To get a floating point, divide.
-                if (Character.isDigit(c)) {
-                    token += c;
-                } else {
-                    tokens.add(new Token(token, TokenType.NUMBER));
-                    token = "";
-                    state = TokenizeState.DEFAULT;
-                    i--; // Reprocess this character in the default state.
-                }
-                break;
-                
-            case STRING:
-                if (c == '"') {
-                    tokens.add(new Token(token, TokenType.STRING));
-                    token = "";
-                    state = TokenizeState.DEFAULT;
-                } else {
-                    token += c;
-                }
-                break;
-                
-            case COMMENT:
-                if (c == '\n') {
-                    state = TokenizeState.DEFAULT;
-                }
-                break;
-            }
-        }
-        
-        // HACK: Silently ignore any in-progress token when we run out of
-        // characters. This means that, for example, if a script has a string
-        // that's missing the closing ", it will just ditch it.
-        return tokens;
-    }
-
-    // Token data --------------------------------------------------------------
-
-    /**
-     * This defines the different kinds of tokens or meaningful chunks of code
-     * that the parser knows how to consume. These let us distinguish, for
-     * example, between a string "foo" and a variable named "foo".
-     * 
-     * HACK: A typical tokenizer would actually have unique token types for
-     * each keyword (print, goto, etc.) so that the parser doesn't have to look
-     * at the names, but Jasic is a little more crude.
-     */
-    private enum TokenType {
-        WORD("Un mot (variable/instruction)"),
-        NUMBER("Un nombre"),
-        STRING("Une chaîne de caractères"),
-        LABEL("Un label"),
-        LINE("Saut de ligne"),
-        EQUALS("Signe égal '='"),
-        OPERATOR("Opérateur. ex : + - x "),
-        LEFT_PAREN("Parenthèse gauche '('"),
-        RIGHT_PAREN ("Parenthèse droite ')'"),
-        EOF ("Fin du fichier");
-
-        TokenType(String texte) {
-            this.texteDesc = texte;
-        }
-
-        private String texteDesc;
-
-        @Override
-        public String toString() {
-            return texteDesc;
-        }
-    }
-    
-    /**
-     * This is a single meaningful chunk of code. It is created by the tokenizer
-     * and consumed by the parser.
-     */
-    private static class Token {
-        public Token(String text, TokenType type) {
-            this.text = text;
-            this.type = type;
-        }
-        
-        public final String text;
-        public final TokenType type;
-    }
-    
-    /**
-     * This defines the different states the tokenizer can be in while it's
-     * scanning through the source code. Tokenizers are state machines, which
-     * means the only data they need to store is where they are in the source
-     * code and this one "state" or mode value.
-     * 
-     * One of the main differences between tokenizing and parsing is this
-     * regularity. Because the tokenizer stores only this one state value, it
-     * can't handle nesting (which would require also storing a number to
-     * identify how deeply nested you are). The parser is able to handle that.
-     */
-    private enum TokenizeState {
-        DEFAULT, WORD, NUMBER, STRING, COMMENT
-    }
+    // Poignée d'annulation des prochaines exécutions (optionnelle)
+    private Annulation annulation;
 
     // Parsing -----------------------------------------------------------------
 
@@ -221,7 +54,7 @@ public class Interpreter {
      * label in the program. It's a bit gross, but it works.
      */
     private class Parser {
-        public Parser(List<Token> tokens) {
+        public Parser(TokenStream tokens) {
             this.tokens = tokens;
             position = 0;
         }
@@ -230,13 +63,18 @@ public class Interpreter {
          * The top-level function to start parsing. This will keep consuming
          * tokens and routing to the other parse functions for the different
          * grammar syntax until we run out of code to parse.
+         *
+         * Chaque mot-clé ayant son propre type de token, le choix de
+         * l'instruction se fait par un switch sur ce type : le coût ne dépend
+         * plus du nombre de mots-clés du langage.
          * 
          * @param  labels   A map of label names to statement indexes. The
          *                  parser will fill this in as it scans the code.
          * @return          The list of parsed statements.
          */
         public List<Statement> parse(Map<String, Integer> labels) {
-            List<Statement> statements = new ArrayList<Statement>();
+            this.statements = new ArrayList<Statement>();
+            this.labels = labels;
 
             // On utilise une pile : ParserPair(Etat => Statement)
             statStacks = new Stack<ParserPair>();
@@ -244,284 +82,325 @@ public class Interpreter {
             // On initialise l'état du parser à défault
             statStacks.push(new ParserPair(ParserState.DEFAULT, null));
 
+            int debut = position;
             while (true) {
+                // Les opérateurs lus depuis le dernier passage sont attribués au statement produit
+                compterOperateurs();
+                localiser(debut);
+
                 // Ignore empty lines.
                 while (match(TokenType.LINE));
-                
-                if (match(TokenType.LABEL)) {
-                    // Mark the index of the statement after the label.
-                    labels.put(last(1).text, statements.size());
-                } else if (match(TokenType.WORD, TokenType.EQUALS)) {
-                    String name = last(2).text;
-                    enumVars.add(name);
-                    Expression value = expression();
-                    statements.add(new AssignStatement(name, value));
-                } else if (match("print")) {
-                    statements.add(new PrintStatement(expression()));
-                } else if (match("input")) {
-                    statements.add(new InputStatement(
-                        consume(TokenType.WORD).text));
-                } else if (match("goto")) {
-                    statements.add(new GotoStatement(
-                            consume(TokenType.WORD).text));
-
-                /**   Instruction DEPLACER
-                 * ===================================  **/
-                } else if (match("deplacer")) {
-                    // On teste la présence de parenthèses
-                    consume(TokenType.LEFT_PAREN);
-
-                    DeplacerStatement dS;
-
-                    // Cas d'une direction passée par variable
-                    if (enumVars.contains(get(0).text)) {
-                        // On crée un DeplacerStatement avec le nom de la variable
-                        dS = new DeplacerStatement(get(0).text);
-                    } else {
-                        // Cas d'une direction écrite à la main
-                        // On vérifie que la chaîne suivante est un énuméré valide
-                        Direction dir = Direction.strToEnum(get(0).text);
-                        if (dir == null) {
-                            addError("Cette direction est invalide", get(0).text, false);
-                        }
-
-                        // On créé un DeplacerStatement avec la direction ainsi créée
-                        dS = new DeplacerStatement(dir);
+                debut = position;
+
+                // Une assignation prime sur les mots-clés : "si = 2" reste valide
+                if (match(TokenType.WORD, TokenType.EQUALS)) {
+                    parseAssign();
+                    continue;
+                }
+
+                TokenType type = type(0);
+                position++;
+
+                switch (type) {
+                    case LABEL:
+                        // Mark the index of the statement after the label.
+                        labels.put(lastText(1), statements.size());
+                        break;
+                    case PRINT:         statements.add(new PrintStatement(expression())); break;
+                    case INPUT:         statements.add(new InputStatement(
+                                            slot(tokens.text(consume(TokenType.WORD))))); break;
+                    case GOTO:          statements.add(new GotoStatement(
+                                            tokens.text(consume(TokenType.WORD)))); break;
+                    case DEPLACER:      parseDeplacer(); break;
+                    case ATTAQUER:      parseAttaquer(); break;
+                    case POUR:          parsePour(); break;
+                    case FINPOUR:       parseFinPour(); break;
+                    case TANTQUE:       parseTantQue(); break;
+                    case FINTANTQUE:    parseFinTantQue(); break;
+                    case SI:            parseSi(); break;
+                    case SINON:         parseSinon(); break;
+                    case FINSI:         parseFinSi(); break;
+                    case RECHARGER:     parseRecharger(); break;
+                    // Unexpected token : on vérifie si on atteint la fin du fichier
+                    case EOF:
+                        return statements;
+                    // Sinon on jette une exception et on passe à la ligne suivante
+                    default:
+                        position--;
+                        addError("Instruction inattendue", text(0), true, position);
+                        skipLine();
+                }
+            }
+        }
+
+        // Instructions ------------------------------------------------------------
+
+        /**   Assignation : le nom et le signe égal ont déjà été consommés
+         * ===================================  **/
+        private void parseAssign() {
+            String name = lastText(2);
+            enumVars.add(name);
+            Expression value = expression();
+            statements.add(new AssignStatement(slot(name), value));
+        }
+
+        /**   Instruction DEPLACER
+         * ===================================  **/
+        private void parseDeplacer() {
+            // On teste la présence de parenthèses
+            consume(TokenType.LEFT_PAREN);
+
+            DeplacerStatement dS;
+
+            // Cas d'une direction passée par variable
+            if (enumVars.contains(text(0))) {
+                // On crée un DeplacerStatement avec le nom de la variable
+                dS = new DeplacerStatement(slot(text(0)), text(0));
+            } else {
+                // Cas d'une direction écrite à la main
+                // On vérifie que la chaîne suivante est un énuméré valide
+                Direction dir = type(0).getDirection();
+                if (dir == null) {
+                    addError("Cette direction est invalide", text(0), false, position);
+                }
+
+                // On créé un DeplacerStatement avec la direction ainsi créée
+                dS = new DeplacerStatement(dir);
+            }
+
+            // On ajoute ce statement à la liste
+            statements.add(dS);
+
+            // On consume la direction dans les 2 cas
+            consumeWord();
+
+            // On teste la présence de parenthèses fermantes
+            consume(TokenType.RIGHT_PAREN);
+        }
+
+        /**   Instruction ATTAQUER
+         * ===================================  **/
+        private void parseAttaquer() {
+            if (match(TokenType.TIRER)) {
+                // On teste la présence de parenthèses
+                consume(TokenType.LEFT_PAREN);
+
+                // Cas d'une direction passée par variable
+                if (enumVars.contains(text(0))) {
+                    // On créé un TirerStatement avec le nom de la variable
+                    TirerStatement tS = new TirerStatement(slot(text(0)), text(0));
+                    // On ajoute ce statement à la liste
+                    statements.add(tS);
+                } else {
+                    // Cas d'une direction écrite à la main
+                    // On vérifie que la chaîne suivante est un énuméré valide
+                    Direction dir = type(0).getDirection();
+                    if (dir == null) {
+                        addError("Cette direction est invalide", text(0), true, position);
                     }
 
+                    // On créé un TirerStatement avec la direction ainsi créée
+                    TirerStatement tS = new TirerStatement(dir);
+
                     // On ajoute ce statement à la liste
-                    statements.add(dS);
+                    statements.add(tS);
+                }
+                // On consume la direction dans les 2 cas
+                consumeWord();
 
-                    // On consume la direction dans les 2 cas
-                    consume(get(0).text);
+                // On teste la présence de parenthèses fermantes
+                consume(TokenType.RIGHT_PAREN);
+            } else if (match(TokenType.MELEE)) {
+                // On teste la présence de parenthèses
+                consume(TokenType.LEFT_PAREN);
 
-                    // On teste la présence de parenthèses fermantes
-                    consume(TokenType.RIGHT_PAREN);
+                // On vérifie que la chaîne suivante est un énuméré valide
+                Direction dir = type(0).getDirection();
 
-                /**   Instruction ATTAQUER
-                 * ===================================  **/
-                } else if (match("attaquer")) {
-                    match(".");
-                    if (match("tirer")) {
-                        // On teste la présence de parenthèses
-                        consume(TokenType.LEFT_PAREN);
-
-                        // Cas d'une direction passée par variable
-                        if (enumVars.contains(get(0).text)) {
-                            // On créé un TirerStatement avec le nom de la variable
-                            TirerStatement tS = new TirerStatement(get(0).text);
-                            // On ajoute ce statement à la liste
-                            statements.add(tS);
-                        } else {
-                            // Cas d'une direction écrite à la main
-                            // On vérifie que la chaîne suivante est un énuméré valide
-                            Direction dir = Direction.strToEnum(get(0).text);
-                            if (dir == null) {
-                                addError("Cette direction est invalide", get(0).text, true);
-                            }
-
-                            // On créé un TirerStatement avec la direction ainsi créée
-                            TirerStatement tS = new TirerStatement(dir);
-
-                            // On ajoute ce statement à la liste
-                            statements.add(tS);
-                        }
-                        // On consume la direction dans les 2 cas
-                        consume(get(0).text);
-
-                        // On teste la présence de parenthèses fermantes
-                        consume(TokenType.RIGHT_PAREN);
-                    } else if (match("melee")) {
-                        // On teste la présence de parenthèses
-                        consume(TokenType.LEFT_PAREN);
-
-                        // On vérifie que la chaîne suivante est un énuméré valide
-                        Direction dir = Direction.strToEnum(get(0).text);
-
-                        // Si la direction est invalide, on ajoute une erreur
-                        if (dir == null)
-                            addError("Cette direction est invalide", get(0).text, true);
-
-                        // On ajoute une nouvelle instruction déplacer
-                        MeleeStatement mS = new MeleeStatement(dir);
-                        statements.add(mS);
-
-                        // On consume l'énuméré
-                        consume(get(0).text);
-
-                        // On teste la présence de parenthèses fermantes
-                        consume(TokenType.RIGHT_PAREN);
-                    }
-                /** Instruction POUR
-                 * ================================ */
-                } else if (match("pour")) {
-                    consume(TokenType.LEFT_PAREN);
-                    // On récupère l'initialisation
-                    match(TokenType.WORD, TokenType.EQUALS);
-                    String name = last(2).text;
-                    Expression value = expression();
-                    AssignStatement initialisation = new AssignStatement(name, value);
-
-                    // On enregistre la condition
-                    Expression condition = expression();
-
-                    // On récupère l'itération
-                    match(TokenType.WORD, TokenType.EQUALS);
-                    name = last(2).text;
-                    value = expression();
-                    AssignStatement iteration = new AssignStatement(name, value);
+                // Si la direction est invalide, on ajoute une erreur
+                if (dir == null)
+                    addError("Cette direction est invalide", text(0), true, position);
 
-                    consume(TokenType.RIGHT_PAREN);
+                // On ajoute une nouvelle instruction déplacer
+                MeleeStatement mS = new MeleeStatement(dir);
+                statements.add(mS);
 
-                    // On crée un nouveau label l_pour
-                    String labelN = makeID();
-                    labels.put(labelN, statements.size());
+                // On consume l'énuméré
+                consumeWord();
 
-                    // On crée un nouveau statement pour
-                    PourStatement pour = new PourStatement(initialisation, condition, iteration, labelN);
+                // On teste la présence de parenthèses fermantes
+                consume(TokenType.RIGHT_PAREN);
+            }
+        }
 
-                    // On met à jour l'état du programme
-                    ParserPair newPour = new ParserPair(ParserState.POUR, pour);
-                    statStacks.push(newPour);
+        /** Instruction POUR
+         * ================================ */
+        private void parsePour() {
+            consume(TokenType.LEFT_PAREN);
+            // On récupère l'initialisation
+            match(TokenType.WORD, TokenType.EQUALS);
+            String name = lastText(2);
+            Expression value = expression();
+            AssignStatement initialisation = new AssignStatement(slot(name), value);
 
-                    // On ajoute le statement nouvellement créé à la liste des statements
-                    statements.add(pour);
+            // On enregistre la condition
+            Expression condition = expression();
 
-                } else if (match("finpour")) {
-                    if (statStacks.peek().getState() == ParserState.POUR) {
-                        // On récupère l'instruction depuis la pile, sans dépiler
-                        PourStatement pour = (PourStatement) statStacks.peek().getStatement();
+            // On récupère l'itération
+            match(TokenType.WORD, TokenType.EQUALS);
+            name = lastText(2);
+            value = expression();
+            AssignStatement iteration = new AssignStatement(slot(name), value);
 
-                        // On ajoute un GotoStatement vers le pour
-                        GotoStatement safeJump = new GotoStatement(pour.getPour());
-                        statements.add(safeJump);
+            consume(TokenType.RIGHT_PAREN);
 
-                        // On crée un label finPour, et on l'ajoute au pour
-                        String labelN = makeID();
-                        labels.put(labelN, statements.size());
-                        pour.setFinPour(labelN);
+            // On crée un nouveau label l_pour
+            String labelN = makeID();
+            labels.put(labelN, statements.size());
 
-                        // On dépile l'instruction
-                        statStacks.pop();
-                    } else {
-                        // Il y a erreur
-                        addError("Instruction inattendue", "finPour", true);
-                    }
-                /**   Instruction TANTQUE
-                 * ===================================  **/
-                } else if (match("tantque")) {
-                    // On enregistre l'expression parenthésée
-                    Expression condition = expression();
+            // On crée un nouveau statement pour
+            PourStatement pour = new PourStatement(initialisation, condition, iteration, labelN);
 
-                    // On crée un nouveau label pour tantQue
-                    String labelN = makeID();   labels.put(labelN, statements.size());
+            // On met à jour l'état du programme
+            ParserPair newPour = new ParserPair(ParserState.POUR, pour);
+            statStacks.push(newPour);
 
-                    // On crée un nouveau statement tantque, et on l'ajoute à la pile
-                    TantQueStatement tQ = new TantQueStatement(condition, labelN);
+            // On ajoute le statement nouvellement créé à la liste des statements
+            statements.add(pour);
+        }
 
-                    ParserPair newTq = new ParserPair(ParserState.TANT_QUE, tQ);
-                    statStacks.push(newTq);
+        private void parseFinPour() {
+            if (statStacks.peek().getState() == ParserState.POUR) {
+                // On récupère l'instruction depuis la pile, sans dépiler
+                PourStatement pour = (PourStatement) statStacks.peek().getStatement();
 
-                    // On ajoute le statement nouvellement créé à la liste des statements
-                    statements.add(tQ);
+                // On ajoute un GotoStatement vers le pour
+                GotoStatement safeJump = new GotoStatement(pour.getPour());
+                statements.add(safeJump);
 
-                } else if (match("fintantque")) {
-                    // Si l'état du parser est bien le TANT_QUE
-                    if (statStacks.peek().getState() == ParserState.TANT_QUE) {
-                        // On récupère l'instruction depuis la pile, sans dépiler
-                        TantQueStatement tQ = (TantQueStatement) statStacks.peek().getStatement();
+                // On crée un label finPour, et on l'ajoute au pour
+                String labelN = makeID();
+                labels.put(labelN, statements.size());
+                pour.setFinPour(labelN);
 
-                        // On ajoute un GotoStatement vers le tantque
-                        GotoStatement safeJump = new GotoStatement(tQ.getTantQue());
-                        statements.add(safeJump);
+                // On dépile l'instruction
+                statStacks.pop();
+            } else {
+                // Il y a erreur
+                addError("Instruction inattendue", "finPour", true, position - 1);
+            }
+        }
 
-                        // On crée un label finTantQue, et on l'ajoute au tQ
-                        String labelN = makeID();
-                        labels.put(labelN, statements.size());
-                        tQ.setFinTantQue(labelN);
+        /**   Instruction TANTQUE
+         * ===================================  **/
+        private void parseTantQue() {
+            // On enregistre l'expression parenthésée
+            Expression condition = expression();
 
-                        // On dépile l'instruction
-                        statStacks.pop();
-                    } else {
-                        // Il y a erreur
-                        addError("Instruction inattendue", "fintantque", true);
-                    }
+            // On crée un nouveau label pour tantQue
+            String labelN = makeID();   labels.put(labelN, statements.size());
 
-                /**   Instruction SI\ELSE\FINSI
-                 * ===================================  **/
-                } else if (match("si")) {
-                    // On enregistre l'expression entre parenthèses
-                    Expression condition = expression();
+            // On crée un nouveau statement tantque, et on l'ajoute à la pile
+            TantQueStatement tQ = new TantQueStatement(condition, labelN);
 
-                    // On crée un nouveau statement si (non complété), et on l'ajoute à la pile
-                    IfThenStatement ifT = new IfThenStatement(condition);
-                    ParserPair newIf = new ParserPair(ParserState.SI, ifT);
-                    statStacks.push(newIf);
+            ParserPair newTq = new ParserPair(ParserState.TANT_QUE, tQ);
+            statStacks.push(newTq);
 
-                    // On ajoute le statement nouvellement créé à la liste des statements
-                    statements.add(ifT);
+            // On ajoute le statement nouvellement créé à la liste des statements
+            statements.add(tQ);
+        }
 
-                } else if (match("sinon")) {
-                    // Si l'état du parser est bien le SI on ajoute le else au SI courant
-                    if (statStacks.peek().getState() == ParserState.SI) {
-                        IfThenStatement ifT = (IfThenStatement) statStacks.peek().getStatement();
+        private void parseFinTantQue() {
+            // Si l'état du parser est bien le TANT_QUE
+            if (statStacks.peek().getState() == ParserState.TANT_QUE) {
+                // On récupère l'instruction depuis la pile, sans dépiler
+                TantQueStatement tQ = (TantQueStatement) statStacks.peek().getStatement();
 
-                        // On commence par ajouter un jump non conditionnel vers le finsi
-                        GotoStatement safeJump = new GotoStatement();
-                        statements.add(safeJump); ifT.setSafeJump(safeJump);
+                // On ajoute un GotoStatement vers le tantque
+                GotoStatement safeJump = new GotoStatement(tQ.getTantQue());
+                statements.add(safeJump);
 
-                        // On crée le label "jump" du else et on l'ajoute
-                        String labelN = makeID();
-                        labels.put(labelN, statements.size());
+                // On crée un label finTantQue, et on l'ajoute au tQ
+                String labelN = makeID();
+                labels.put(labelN, statements.size());
+                tQ.setFinTantQue(labelN);
 
-                        // On ajoute le label créé au si enregistré
-                        // => sans l'enlever de la pile puisqu'on est pas sorti
-                        ifT.setElse(labelN);
-                    } else {
-                        // Il y a erreur
-                        addError("Instruction inattendue","else", true);
-                    }
-                } else if (match("finsi")) {
-                    // Si l'état du parser est bien le SI on ferme l'instruction précédemment créée
-                    if (statStacks.peek().getState() == ParserState.SI) {
-                        // On récupère l'instruction depuis la pile, sans dépiler
-                        IfThenStatement ifT = (IfThenStatement) statStacks.peek().getStatement();
+                // On dépile l'instruction
+                statStacks.pop();
+            } else {
+                // Il y a erreur
+                addError("Instruction inattendue", "fintantque", true, position - 1);
+            }
+        }
 
-                        // On crée le label "jump" du finsi
-                        String labelN = makeID();
-                        labels.put(labelN, statements.size());
+        /**   Instruction SI\ELSE\FINSI
+         * ===================================  **/
+        private void parseSi() {
+            // On enregistre l'expression entre parenthèses
+            Expression condition = expression();
 
-                        // Si il y a eu un else, on relie le safeJump du else avec le finsi
-                        if (ifT.hasElse()) ifT.getsafeJump().setLabel(labelN);
+            // On crée un nouveau statement si (non complété), et on l'ajoute à la pile
+            IfThenStatement ifT = new IfThenStatement(condition);
+            ParserPair newIf = new ParserPair(ParserState.SI, ifT);
+            statStacks.push(newIf);
 
-                        // On ajoute le label créé au si enregistré
-                        ifT.setFinSi(labelN);
+            // On ajoute le statement nouvellement créé à la liste des statements
+            statements.add(ifT);
+        }
 
-                        // On dépile l'instruction
-                        statStacks.pop();
-                    } else {
-                        // Il y a erreur
-                        addError("Instruction inattendue", "finsi", true);
-                    }
+        private void parseSinon() {
+            // Si l'état du parser est bien le SI on ajoute le else au SI courant
+            if (statStacks.peek().getState() == ParserState.SI) {
+                IfThenStatement ifT = (IfThenStatement) statStacks.peek().getStatement();
 
-                } else if (match("recharger")) {
-                    // On crée un statement "recharger"
-                    RechargerStatement rStatement = new RechargerStatement();
-                    statements.add(rStatement);
+                // On commence par ajouter un jump non conditionnel vers le finsi
+                GotoStatement safeJump = new GotoStatement();
+                statements.add(safeJump); ifT.setSafeJump(safeJump);
 
-                    consume(TokenType.LEFT_PAREN);
-                    consume(TokenType.RIGHT_PAREN);
-                // Unexpected token : on vérifie si on atteint la fin du fichier
-                } else if (match(TokenType.EOF)) {
-                    break;
-                // Sinon on jette une exception et on passe à la ligne suivante
-                } else {
-                    addError("Instruction inattendue", get(0).text, true);
-                    skipLine();
-                }
+                // On crée le label "jump" du else et on l'ajoute
+                String labelN = makeID();
+                labels.put(labelN, statements.size());
+
+                // On ajoute le label créé au si enregistré
+                // => sans l'enlever de la pile puisqu'on est pas sorti
+                ifT.setElse(labelN);
+            } else {
+                // Il y a erreur
+                addError("Instruction inattendue", "else", true, position - 1);
+            }
+        }
+
+        private void parseFinSi() {
+            // Si l'état du parser est bien le SI on ferme l'instruction précédemment créée
+            if (statStacks.peek().getState() == ParserState.SI) {
+                // On récupère l'instruction depuis la pile, sans dépiler
+                IfThenStatement ifT = (IfThenStatement) statStacks.peek().getStatement();
+
+                // On crée le label "jump" du finsi
+                String labelN = makeID();
+                labels.put(labelN, statements.size());
+
+                // Si il y a eu un else, on relie le safeJump du else avec le finsi
+                if (ifT.hasElse()) ifT.getsafeJump().setLabel(labelN);
+
+                // On ajoute le label créé au si enregistré
+                ifT.setFinSi(labelN);
+
+                // On dépile l'instruction
+                statStacks.pop();
+            } else {
+                // Il y a erreur
+                addError("Instruction inattendue", "finsi", true, position - 1);
             }
-            
-            return statements;
+        }
+
+        private void parseRecharger() {
+            // On crée un statement "recharger"
+            RechargerStatement rStatement = new RechargerStatement();
+            statements.add(rStatement);
+
+            consume(TokenType.LEFT_PAREN);
+            consume(TokenType.RIGHT_PAREN);
         }
         
         // The following functions each represent one grammatical part of the
@@ -536,7 +415,7 @@ public class Interpreter {
          * @return The parsed expression.
          */
         private Expression expression() {
-            if (match("detecterEnnemi")) {
+            if (match(TokenType.DETECTERENNEMI)) {
                 consume(TokenType.LEFT_PAREN);
                 consume(TokenType.RIGHT_PAREN);
 
@@ -544,7 +423,7 @@ public class Interpreter {
 
                 // On enregistre la variable assignée
                 // enumVars.add("");
-            } else if (match("estVivant")) {
+            } else if (match(TokenType.ESTVIVANT)) {
                 consume(TokenType.LEFT_PAREN);
                 consume(TokenType.RIGHT_PAREN);
 
@@ -585,9 +464,10 @@ public class Interpreter {
                 // Keep building operator expressions as long as we have operators.
                 while (match(TokenType.OPERATOR) ||
                         match(TokenType.EQUALS)) {
-                    char operator = last(1).text.charAt(0);
+                    char operator = tokens.firstChar(position - 1);
                     Expression right = atomic();
                     expression = new OperatorExpression(expression, operator, right);
+                    nbOperateurs++;
                 }
             }
             
@@ -603,34 +483,35 @@ public class Interpreter {
          */
         private Expression atomic() {
 
-            /** Test préalable sur les énumérés du language **/
-            if (match("BASGAUCHE")) {
-                return new DirectionValue(Direction.BG);
-            } else if (match("BASDROIT")) {
-                return new DirectionValue(Direction.BD);
-            } else if (match("HAUTDROIT")) {
-                return new DirectionValue(Direction.HD);
-            } else if (match("HAUTGAUCHE")) {
-                return new DirectionValue(Direction.HG);
-
-            /** Test généraux sur les contenus possibles **/
-            } else if (match(TokenType.WORD)) {
-                // A word is a reference to a variable.
-                return new VariableExpression(last(1).text);
-            } else if (match(TokenType.NUMBER)) {
-                return new NumberValue(Double.parseDouble(last(1).text));
-            } else if (match(TokenType.STRING)) {
-                return new StringValue(last(1).text);
-            } else if (match(TokenType.LEFT_PAREN)) {
-                // The contents of a parenthesized expression can be any
-                // expression. This lets us "restart" the precedence cascade
-                // so that you can have a lower precedence expression inside
-                // the parentheses.
-                Expression expression = expression();
-                consume(TokenType.RIGHT_PAREN);
-                return expression;
+            // Un seul switch sur le type du token, directions comprises
+            TokenType type = type(0);
+            position++;
+
+            switch (type) {
+                /** Test préalable sur les énumérés du language **/
+                case BASGAUCHE: case BASDROIT: case HAUTDROIT: case HAUTGAUCHE:
+                    return new DirectionValue(type.getDirection());
+
+                /** Test généraux sur les contenus possibles **/
+                case NUMBER:
+                    return new NumberValue(Double.parseDouble(lastText(1)));
+                case STRING:
+                    return new StringValue(lastText(1));
+                case LEFT_PAREN:
+                    // The contents of a parenthesized expression can be any
+                    // expression. This lets us "restart" the precedence cascade
+                    // so that you can have a lower precedence expression inside
+                    // the parentheses.
+                    Expression expression = expression();
+                    consume(TokenType.RIGHT_PAREN);
+                    return expression;
+                default:
+                    // A word is a reference to a variable.
+                    if (type.isWord()) return new VariableExpression(slot(lastText(1)));
             }
-            addError("Erreur",  getParserStateError(), false);
+
+            position--;
+            addError("Erreur", getParserStateError(), false, position);
             skipLine(); // On passe à la ligne d'instructions suivante
             return null; // On renvoie NULL comme valeur par défaut
         }
@@ -658,8 +539,8 @@ public class Interpreter {
          * @return       True if tokens were consumed.
          */
         private boolean match(TokenType type1, TokenType type2) {
-            if (get(0).type != type1) return false;
-            if (get(1).type != type2) return false;
+            if (!is(0, type1)) return false;
+            if (!is(1, type2)) return false;
             position += 2;
             return true;
         }
@@ -671,20 +552,7 @@ public class Interpreter {
          * @return       True if the token was consumed.
          */
         private boolean match(TokenType type) {
-            if (get(0).type != type) return false;
-            position++;
-            return true;
-        }
-        
-        /**
-         * Consumes the next token if it's a word token with the given name.
-         * 
-         * @param  name  Expected name of the next word token.
-         * @return       True if the token was consumed.
-         */
-        private boolean match(String name) {
-            if (get(0).type != TokenType.WORD) return false;
-            if (!get(0).text.equals(name)) return false;
+            if (!is(0, type)) return false;
             position++;
             return true;
         }
@@ -696,52 +564,148 @@ public class Interpreter {
          * an opening (.
          * 
          * @param  type  Expected type of the next token.
-         * @return       The consumed token.
+         * @return       The index of the consumed token.
          */
-        private Token consume(TokenType type) {
-            if (get(0).type != type) addError("On attendait plutôt", type+"", false);
-            return tokens.get(position++);
+        private int consume(TokenType type) {
+            if (!is(0, type)) addError("On attendait plutôt", type+"", false, position);
+            return position++;
         }
         
         /**
-         * Consumes the next token if it's a word with the given name. If not,
-         * throws an exception.
-         * 
-         * @param  name  Expected name of the next word token.
-         * @return       The consumed token.
+         * Consumes the next token if it's a word (identifier or keyword). If
+         * not, reports an error and consumes nothing.
+         */
+        private void consumeWord() {
+            if (!match(TokenType.WORD)) addError("On attendait plutôt", text(0), false, position);
+        }
+
+        /**
+         * Teste le type d'un token non consommé. Les mots-clés ayant leur
+         * propre type, WORD accepte n'importe quel mot (identifiant ou mot-clé) :
+         * un mot-clé reste ainsi utilisable comme nom de variable.
+         *
+         * @param  offset How far forward in the token stream to look.
+         * @param  type   Expected type of the token.
+         * @return        True if the token has the given type.
          */
-        private Token consume(String name) {
-            if (!match(name)) addError("On attendait plutôt", name, false);
-            return last(1);
+        private boolean is(int offset, TokenType type) {
+            if (type == TokenType.WORD) return type(offset).isWord();
+            return type(offset) == type;
         }
 
         /**
-         * Gets a previously consumed token, indexing backwards. last(1) will
-         * be the token just consumed, last(2) the one before that, etc.
+         * Gets the text of a previously consumed token, indexing backwards.
+         * lastText(1) will be the token just consumed, lastText(2) the one
+         * before that, etc.
          * 
          * @param  offset How far back in the token stream to look.
-         * @return        The consumed token.
+         * @return        The text of the consumed token.
          */
-        private Token last(int offset) {
-            return tokens.get(position - offset);
+        private String lastText(int offset) {
+            return tokens.text(position - offset);
         }
         
         /**
-         * Gets an unconsumed token, indexing forward. get(0) will be the next
-         * token to be consumed, get(1) the one after that, etc.
+         * Gets the type of an unconsumed token, indexing forward. type(0) will
+         * be the next token to be consumed, type(1) the one after that, etc.
          * 
          * @param  offset How far forward in the token stream to look.
-         * @return        The yet-to-be-consumed token.
+         * @return        The type of the yet-to-be-consumed token.
+         */
+        private TokenType type(int offset) {
+            return tokens.type(position + offset);
+        }
+
+        /**
+         * Gets the text of an unconsumed token, indexing forward.
+         *
+         * @param  offset How far forward in the token stream to look.
+         * @return        The text of the yet-to-be-consumed token.
          */
-        private Token get(int offset) {
-            if (position + offset >= tokens.size()) {
-                return new Token("", TokenType.EOF);
+        private String text(int offset) {
+            return tokens.text(position + offset);
+        }
+
+        /**
+         * Résout le nom d'une variable en un slot dense de la frame d'exécution.
+         * Un nouveau slot est alloué à la première occurrence du nom.
+         *
+         * @param  name Nom de la variable.
+         * @return      L'index de la variable dans la frame.
+         */
+        private int slot(String name) {
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                slot = slots.size();
+                slots.put(name, slot);
             }
-            return tokens.get(position + offset);
+            return slot;
+        }
+
+        // Attribue au dernier statement produit les opérateurs lus depuis le dernier appel
+        private void compterOperateurs() {
+            if (operateurs.size() == statements.size()) return;
+
+            while (operateurs.size() < statements.size()) operateurs.add(0);
+            operateurs.set(operateurs.size() - 1, nbOperateurs);
+            nbOperateurs = 0;
+        }
+
+        // Attribue aux statements produits depuis le dernier appel leur token de début
+        private void localiser(int debut) {
+            while (debuts.size() < statements.size()) debuts.add(debut);
+        }
+
+        /**
+         * Construit une erreur localisée sur un token du flux.
+         *
+         * @param  token Index du token fautif.
+         */
+        private Diagnostic diagnostic(String error, String errToken, boolean wrongToken, int token) {
+            return new Diagnostic(error, errToken, wrongToken, tokens.line(token),
+                    tokens.start(token), tokens.start(token) + tokens.length(token));
+        }
+
+        // Ajoute une erreur localisée sur un token du flux
+        private void addError(String error, String errToken, boolean wrongToken, int token) {
+            Interpreter.this.addError(diagnostic(error, errToken, wrongToken, token));
+        }
+
+        /**
+         * @return La ligne où débute chaque statement.
+         */
+        public int[] getLignes() {
+            int[] lignes = new int[debuts.size()];
+            for (int i = 0; i < lignes.length; i++) lignes[i] = tokens.line(debuts.get(i));
+            return lignes;
+        }
+
+        /**
+         * @return Le nombre d'opérateurs de chaque statement, pour le modèle de coût.
+         */
+        public int[] getOperateurs() {
+            compterOperateurs();
+
+            int[] ops = new int[operateurs.size()];
+            for (int i = 0; i < ops.length; i++) ops[i] = operateurs.get(i);
+            return ops;
+        }
+
+        /**
+         * @return Le nombre de slots alloués, soit la taille de la frame.
+         */
+        public int getNbSlots() {
+            return slots.size();
         }
 
         private Stack<ParserPair> statStacks; // Pile des états du parser
-        private final List<Token> tokens;
+        private List<Statement> statements; // Statements produits
+        private Map<String, Integer> labels; // Labels vers index des statements
+        private final Map<String, Integer> slots = new HashMap<String, Integer>(); // Table des symboles
+        private final List<Integer> operateurs = new ArrayList<Integer>(); // Opérateurs de chaque statement
+        private int nbOperateurs; // Opérateurs lus pour le statement en cours
+        private final List<Integer> debuts = new ArrayList<Integer>(); // Token de début de chaque statement
+        private final TokenStream tokens;
         public int position;
 
         // Génère un message plus avancé à propos d'une erreur du parser
@@ -753,6 +717,743 @@ public class Interpreter {
         }
     }
     
+    // Typage statique ---------------------------------------------------------
+
+    /**
+     * Types statiques des expressions, sous forme de masque : une expression
+     * peut produire plusieurs types selon l'exécution (ex : une variable lue
+     * avant d'être assignée vaut le nombre 0).
+     */
+    private static final int T_NUM = 1, T_DIR = 2, T_STR = 4;
+
+    /**
+     * Passe exécutée après le parsing : elle infère le type de chaque slot, puis
+     * remplace les OperatorExpression et VariableExpression dont les types sont
+     * connus par des noeuds numériques spécialisés. Les autres gardent le chemin
+     * générique par Value.
+     */
+    private class Specializer {
+        public Specializer(List<Statement> statements, int nbSlots) {
+            this.statements = statements;
+            this.slotTypes = new int[nbSlots];
+        }
+
+        /**
+         * Infère les types des slots par point fixe, puis spécialise l'arbre.
+         */
+        public void specialize() {
+            // Une variable non initialisée vaut 0 : tous les slots contiennent au moins T_NUM
+            Arrays.fill(slotTypes, T_NUM);
+            for (Statement st : statements) {
+                if (st instanceof InputStatement)
+                    slotTypes[((InputStatement) st).slot] |= T_STR;
+                // Les variables passées à deplacer\tirer restent stockées comme des Value
+                else if (st instanceof DeplacerStatement && ((DeplacerStatement) st).var != null)
+                    slotTypes[((DeplacerStatement) st).slot] |= T_DIR;
+                else if (st instanceof TirerStatement && ((TirerStatement) st).var != null)
+                    slotTypes[((TirerStatement) st).slot] |= T_DIR;
+            }
+
+            // On propage les types des assignations jusqu'à stabilité
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (AssignStatement assign : assignments()) {
+                    int type = slotTypes[assign.slot] | typeOf(assign.value);
+                    if (type != slotTypes[assign.slot]) {
+                        slotTypes[assign.slot] = type;
+                        changed = true;
+                    }
+                }
+            }
+
+            // On réécrit les expressions avec les types connus
+            for (Statement st : statements) {
+                if (st instanceof PrintStatement) {
+                    PrintStatement print = (PrintStatement) st;
+                    print.expression = rewrite(print.expression);
+                } else if (st instanceof IfThenStatement) {
+                    IfThenStatement ifT = (IfThenStatement) st;
+                    ifT.condition = rewrite(ifT.condition);
+                } else if (st instanceof TantQueStatement) {
+                    TantQueStatement tQ = (TantQueStatement) st;
+                    tQ.condition = rewrite(tQ.condition);
+                } else if (st instanceof PourStatement) {
+                    PourStatement pour = (PourStatement) st;
+                    pour.condition = rewrite(pour.condition);
+                }
+            }
+            for (AssignStatement assign : assignments()) {
+                assign.value = rewrite(assign.value);
+                assign.numeric = (slotTypes[assign.slot] == T_NUM);
+            }
+        }
+
+        // Renvoie toutes les assignations du programme, y compris celles des pour
+        private List<AssignStatement> assignments() {
+            List<AssignStatement> list = new ArrayList<AssignStatement>();
+            for (Statement st : statements) {
+                if (st instanceof AssignStatement) {
+                    list.add((AssignStatement) st);
+                } else if (st instanceof PourStatement) {
+                    list.add((AssignStatement) ((PourStatement) st).initialisation);
+                    list.add((AssignStatement) ((PourStatement) st).iteration);
+                }
+            }
+            return list;
+        }
+
+        // Renvoie le masque des types que peut produire une expression
+        private int typeOf(Expression e) {
+            if (e instanceof NumberValue || e instanceof EstVivant) return T_NUM;
+            if (e instanceof DirectionValue || e instanceof DetecterEnnemi) return T_DIR;
+            if (e instanceof StringValue) return T_STR;
+            if (e instanceof VariableExpression) return slotTypes[((VariableExpression) e).slot];
+            if (e instanceof OperatorExpression) {
+                OperatorExpression op = (OperatorExpression) e;
+                // Seul + peut produire autre chose qu'un nombre : concaténation si la gauche n'est pas un nombre
+                if (op.operator != '+') return T_NUM;
+                int left = typeOf(op.left);
+                return ((left & T_NUM) != 0 ? T_NUM : 0) | ((left & ~T_NUM) != 0 ? T_STR : 0);
+            }
+            return T_NUM | T_DIR | T_STR;
+        }
+
+        // Remplace récursivement les noeuds dont les types sont connus par leur version numérique
+        private Expression rewrite(Expression e) {
+            if (e instanceof VariableExpression) {
+                int slot = ((VariableExpression) e).slot;
+                return (slotTypes[slot] == T_NUM) ? new NumericVariableExpression(slot) : e;
+            }
+            if (!(e instanceof OperatorExpression)) return e;
+
+            OperatorExpression op = (OperatorExpression) e;
+            int leftType = typeOf(op.left);
+            Expression left = rewrite(op.left), right = rewrite(op.right);
+
+            switch (op.operator) {
+                case '-': case '*': case '/':
+                    return new ArithmeticExpression(left, op.operator, right);
+                case '+':
+                    if (leftType == T_NUM) return new ArithmeticExpression(left, op.operator, right);
+                    break;
+                case '=': case '!':
+                    // Nombres et directions sont comparés par leur valeur numérique
+                    if ((leftType & T_STR) == 0) return new ComparisonExpression(left, op.operator, right);
+                    break;
+                case '<': case '>':
+                    if (leftType == T_NUM) return new ComparisonExpression(left, op.operator, right);
+                    break;
+            }
+
+            return new OperatorExpression(left, op.operator, right);
+        }
+
+        private final List<Statement> statements;
+        private final int[] slotTypes;
+    }
+
+    // Compilation -------------------------------------------------------------
+
+    /**
+     * Jeu d'instructions de la machine virtuelle. Chaque instruction occupe
+     * INSTR_WIDTH entiers du tableau code : [opcode, opérande A, opérande B].
+     * Les cibles de saut sont des offsets absolus dans ce tableau : aucun label
+     * n'est plus recherché pendant l'exécution.
+     */
+    static final int OP_EXEC = 0;           // A : index du statement à exécuter
+    static final int OP_JUMP = 1;           // A : offset cible
+    static final int OP_JUMP_IF_FALSE = 2;  // A : index de la condition, B : offset cible si faux
+    static final int OP_POUR = 3;           // A : index du pour, B : offset du finpour
+    static final int OP_DETECTER = 4;       // A : index du capteur, B : garde (cf. GARDE_*)
+    static final int OP_ESTVIVANT = 5;      // A : index du capteur, B : garde (cf. GARDE_*)
+    static final int OP_TANTQUE_INFINI = 6; // Comme OP_JUMP_IF_FALSE, boucle infinie si vrai (cf. LoopAnalyzer)
+    static final int OP_POUR_BORNE = 7;     // Comme OP_POUR, nombre de tours connu (cf. LoopAnalyzer)
+    static final int INSTR_WIDTH = 3;
+
+    /**
+     * Garde d'une interrogation de capteur. Un capteur placé dans un pour n'est
+     * interrogé que si la partie qui le contient est évaluée : l'initialisation
+     * au premier passage, l'itération aux suivants. La garde encode alors
+     * l'index du pour : GARDE_INIT + 2 * idPour ou GARDE_ITERATION + 2 * idPour.
+     */
+    private static final int GARDE_AUCUNE = 0;
+    private static final int GARDE_INIT = 1;
+    private static final int GARDE_ITERATION = 2;
+
+    // Nombre maximal de tours simulés par le LoopAnalyzer pour un pour
+    private static final int TOURS_MAX = 10000;
+
+    /**
+     * Le compilateur transforme la liste de statements produite par le parseur
+     * en un tableau d'opcodes. Chaque statement donne une instruction, précédée
+     * d'une instruction par capteur (detecterEnnemi\estVivant) qu'il évalue :
+     * la VM suspend l'exécution sur cette instruction, puis reprend à la
+     * suivante avec la valeur fournie par le contrôleur. Le statement n'est
+     * ainsi exécuté qu'une fois, et le décompte d'instructions reste celui de
+     * l'ancienne ré-exécution (une pour l'interrogation, une pour le statement).
+     */
+    private class Compiler {
+        public Compiler(List<Statement> statements, Map<String, Integer> labels) {
+            this.statements = statements;
+            this.labels = labels;
+        }
+
+        /**
+         * Génère le code de la VM. Les pools statements\conditions sont indexés
+         * par le numéro du statement.
+         *
+         * @return Le tableau d'opcodes.
+         */
+        public int[] compile() {
+            // On relève les capteurs de chaque statement, dans l'ordre d'évaluation
+            List<List<Expression>> capteurs = new ArrayList<List<Expression>>();
+            List<List<Integer>> gardes = new ArrayList<List<Integer>>();
+            debuts = new int[statements.size() + 1];
+
+            for (int i = 0; i < statements.size(); i++) {
+                List<Expression> liste = new ArrayList<Expression>();
+                List<Integer> garde = new ArrayList<Integer>();
+                if (resolu(statements.get(i))) releverCapteurs(i, statements.get(i), liste, garde);
+                capteurs.add(liste);    gardes.add(garde);
+
+                // Le groupe du statement commence par ses interrogations de capteurs
+                debuts[i + 1] = debuts[i] + (liste.size() + 1) * INSTR_WIDTH;
+            }
+
+            int[] code = new int[debuts[statements.size()]];
+
+            for (int i = 0; i < statements.size(); i++) {
+                Statement st = statements.get(i);
+                int pc = debuts[i];
+
+                for (int k = 0; k < capteurs.get(i).size(); k++) {
+                    Expression capteur = capteurs.get(i).get(k);
+                    if (capteur instanceof DetecterEnnemi) {
+                        ((DetecterEnnemi) capteur).index = nbCapteurs;
+                        code[pc] = OP_DETECTER;
+                    } else {
+                        ((EstVivant) capteur).index = nbCapteurs;
+                        code[pc] = OP_ESTVIVANT;
+                    }
+                    code[pc+1] = nbCapteurs++;
+                    code[pc+2] = gardes.get(i).get(k);
+                    pc += INSTR_WIDTH;
+                }
+
+                if (!resolu(st)) {
+                    // Bloc jamais fermé ou goto vers un label inconnu : le statement ne fait rien
+                    code[pc] = OP_JUMP;
+                    code[pc+1] = debuts[i + 1];
+                } else if (st instanceof GotoStatement) {
+                    code[pc] = OP_JUMP;
+                    code[pc+1] = target(((GotoStatement) st).label);
+                } else if (st instanceof IfThenStatement) {
+                    IfThenStatement ifT = (IfThenStatement) st;
+                    code[pc] = OP_JUMP_IF_FALSE;
+                    code[pc+1] = i;
+                    code[pc+2] = target(ifT.hasElse() ? ifT.l_else : ifT.l_finSi);
+                } else if (st instanceof TantQueStatement) {
+                    code[pc] = OP_JUMP_IF_FALSE;
+                    code[pc+1] = i;
+                    code[pc+2] = target(((TantQueStatement) st).l_finTantQue);
+                } else if (st instanceof PourStatement) {
+                    code[pc] = OP_POUR;
+                    code[pc+1] = i;
+                    code[pc+2] = target(((PourStatement) st).l_finPour);
+                } else {
+                    code[pc] = OP_EXEC;
+                    code[pc+1] = i;
+                }
+            }
+
+            return code;
+        }
+
+        /**
+         * @return Le nombre de capteurs du programme, soit la taille de la frame des capteurs.
+         */
+        public int getNbCapteurs() {
+            return nbCapteurs;
+        }
+
+        // Relève les capteurs évalués par un statement, avec la garde de chacun
+        private void releverCapteurs(int index, Statement st, List<Expression> liste, List<Integer> gardes) {
+            if (st instanceof PourStatement) {
+                PourStatement pour = (PourStatement) st;
+                int avant = liste.size();
+                releverCapteurs(((AssignStatement) pour.initialisation).value, liste);
+                while (gardes.size() < liste.size()) gardes.add(GARDE_INIT + 2 * index);
+
+                releverCapteurs(((AssignStatement) pour.iteration).value, liste);
+                while (gardes.size() < liste.size()) gardes.add(GARDE_ITERATION + 2 * index);
+
+                releverCapteurs(pour.condition, liste);
+                while (gardes.size() < liste.size()) gardes.add(GARDE_AUCUNE);
+                return;
+            }
+
+            if (st instanceof PrintStatement) releverCapteurs(((PrintStatement) st).expression, liste);
+            else if (st instanceof AssignStatement) releverCapteurs(((AssignStatement) st).value, liste);
+            else if (st instanceof IfThenStatement) releverCapteurs(((IfThenStatement) st).condition, liste);
+            else if (st instanceof TantQueStatement) releverCapteurs(((TantQueStatement) st).condition, liste);
+
+            while (gardes.size() < liste.size()) gardes.add(GARDE_AUCUNE);
+        }
+
+        // Parcourt une expression de gauche à droite, dans l'ordre de son évaluation
+        private void releverCapteurs(Expression e, List<Expression> liste) {
+            if (e instanceof DetecterEnnemi || e instanceof EstVivant) {
+                liste.add(e);
+            } else if (e instanceof OperatorExpression) {
+                releverCapteurs(((OperatorExpression) e).left, liste);
+                releverCapteurs(((OperatorExpression) e).right, liste);
+            } else if (e instanceof ArithmeticExpression) {
+                releverCapteurs(((ArithmeticExpression) e).left, liste);
+                releverCapteurs(((ArithmeticExpression) e).right, liste);
+            } else if (e instanceof ComparisonExpression) {
+                releverCapteurs(((ComparisonExpression) e).left, liste);
+                releverCapteurs(((ComparisonExpression) e).right, liste);
+            }
+        }
+
+        /**
+         * Vrai si le label de saut du statement est connu. Un bloc jamais fermé
+         * (si sans finsi, tantque sans fintantque, pour sans finpour) ou un goto
+         * vers un label inconnu n'est pas une erreur de syntaxe : comme
+         * l'interpréteur d'origine, le statement est alors sans effet, et sa
+         * condition n'est pas évaluée.
+         */
+        private boolean resolu(Statement st) {
+            if (st instanceof GotoStatement) return labels.containsKey(((GotoStatement) st).label);
+            if (st instanceof IfThenStatement) return labels.containsKey(((IfThenStatement) st).l_finSi);
+            if (st instanceof TantQueStatement) return labels.containsKey(((TantQueStatement) st).l_finTantQue);
+            if (st instanceof PourStatement) return labels.containsKey(((PourStatement) st).l_finPour);
+            return true;
+        }
+
+        /**
+         * Résout un label en offset absolu dans le tableau d'opcodes : le début
+         * du groupe d'instructions du statement, capteurs compris.
+         */
+        private int target(String label) {
+            return debuts[labels.get(label)];
+        }
+
+        private final List<Statement> statements;
+        private final Map<String, Integer> labels;
+
+        // Offset du groupe d'instructions de chaque statement (et de la fin du code)
+        private int[] debuts;
+        private int nbCapteurs = 0;
+    }
+
+    /**
+     * Optimisations exécutées entre le parsing et l'exécution, sans changer le
+     * comportement observable : ni la suite des actions, ni le décompte du
+     * budget (cf. Budget).
+     *
+     * Sur l'arbre, après la spécialisation : les sous-expressions constantes
+     * sont calculées une fois pour toutes, si leur évaluation ne produit
+     * aucune erreur.
+     *
+     * Sur le code compilé :
+     *  - un si (ou un tantque) dont la condition est constante devient un saut ;
+     *  - les chaînes de sauts inconditionnels (goto vers goto, safeJump du
+     *    sinon vers un fintantque...) sont court-circuitées ;
+     *  - les instructions inaccessibles sont supprimées.
+     *
+     * Une instruction court-circuitée n'est plus exécutée mais son coût reste
+     * dû : chaque instruction garde la liste des instructions d'origine dont
+     * elle paie le coût (cf. getOrigines()). Seuls des sauts inconditionnels
+     * sont fusionnés, le coût payé sur chaque chemin est donc inchangé.
+     */
+    private class Optimizer {
+        public Optimizer() {
+            this.scratch = new ExecutionContext(new Program(new int[0], new int[0], new int[0][],
+                    new Statement[0], new Expression[0], new int[0], new int[0], new int[0], new int[0][],
+                    0, 0, Collections.<Diagnostic>emptyList()));
+        }
+
+        /**
+         * Remplace les sous-expressions constantes des statements par leur valeur.
+         */
+        public void fold(List<Statement> statements) {
+            for (Statement st : statements) {
+                if (st instanceof PrintStatement) {
+                    PrintStatement print = (PrintStatement) st;
+                    print.expression = fold(print.expression);
+                } else if (st instanceof AssignStatement) {
+                    AssignStatement assign = (AssignStatement) st;
+                    assign.value = fold(assign.value);
+                } else if (st instanceof IfThenStatement) {
+                    IfThenStatement ifT = (IfThenStatement) st;
+                    ifT.condition = fold(ifT.condition);
+                } else if (st instanceof TantQueStatement) {
+                    TantQueStatement tQ = (TantQueStatement) st;
+                    tQ.condition = fold(tQ.condition);
+                } else if (st instanceof PourStatement) {
+                    PourStatement pour = (PourStatement) st;
+                    pour.condition = fold(pour.condition);
+                    ((AssignStatement) pour.initialisation).value = fold(((AssignStatement) pour.initialisation).value);
+                    ((AssignStatement) pour.iteration).value = fold(((AssignStatement) pour.iteration).value);
+                }
+            }
+        }
+
+        /**
+         * Optimise le code compilé.
+         *
+         * @return Le nouveau tableau d'opcodes.
+         */
+        public int[] optimize(int[] code, Statement[] statements) {
+            int n = code.length / INSTR_WIDTH;
+            code = code.clone();
+            origines = new int[n][];
+            for (int i = 0; i < n; i++) origines[i] = new int[]{ i };
+
+            // Conditions constantes : le saut est toujours ou jamais pris
+            for (int pc = 0; pc < code.length; pc += INSTR_WIDTH) {
+                if (code[pc] != OP_JUMP_IF_FALSE) continue;
+
+                Statement st = statements[code[pc+1]];
+                Expression condition = (st instanceof IfThenStatement) ? ((IfThenStatement) st).condition
+                        : ((TantQueStatement) st).condition;
+                if (!(condition instanceof NumberValue || condition instanceof DirectionValue)) continue;
+
+                boolean vrai = ((Value) condition).toNumber() != 0;
+                // Un tantque toujours vrai est laissé au LoopAnalyzer
+                if (vrai && st instanceof TantQueStatement) continue;
+
+                int cible = vrai ? pc + INSTR_WIDTH : code[pc+2];
+                code[pc] = OP_JUMP;     code[pc+1] = cible;     code[pc+2] = 0;
+            }
+
+            // Chaînes de sauts : on suit les sauts du code avant fusion, en s'arrêtant sur un cycle
+            int[] avant = code.clone();
+            int[][] originesAvant = origines.clone();
+            for (int pc = 0; pc < code.length; pc += INSTR_WIDTH) {
+                if (code[pc] != OP_JUMP) continue;
+
+                List<Integer> payees = new ArrayList<Integer>();
+                for (int o : originesAvant[pc / INSTR_WIDTH]) payees.add(o);
+                Set<Integer> vus = new HashSet<Integer>();
+                vus.add(pc);
+
+                int cible = avant[pc+1];
+                while (cible < avant.length && avant[cible] == OP_JUMP && vus.add(cible)) {
+                    for (int o : originesAvant[cible / INSTR_WIDTH]) payees.add(o);
+                    cible = avant[cible+1];
+                }
+
+                code[pc+1] = cible;
+                origines[pc / INSTR_WIDTH] = toArray(payees);
+            }
+
+            return compacter(code);
+        }
+
+        /** Instructions d'origine dont chaque instruction optimisée paie le coût **/
+        public int[][] getOrigines() {
+            return origines;
+        }
+
+        // Supprime les instructions inaccessibles depuis le début du code
+        private int[] compacter(int[] code) {
+            int n = code.length / INSTR_WIDTH;
+            boolean[] accessible = new boolean[n + 1];
+            Deque<Integer> aVisiter = new ArrayDeque<Integer>();
+            aVisiter.push(0);
+
+            while (!aVisiter.isEmpty()) {
+                int pc = aVisiter.pop();
+                if (accessible[pc / INSTR_WIDTH]) continue;
+                accessible[pc / INSTR_WIDTH] = true;
+                if (pc >= code.length) continue;
+
+                if (code[pc] != OP_JUMP) aVisiter.push(pc + INSTR_WIDTH);
+                if (code[pc] == OP_JUMP) aVisiter.push(code[pc+1]);
+                else if (code[pc] == OP_JUMP_IF_FALSE || code[pc] == OP_POUR) aVisiter.push(code[pc+2]);
+            }
+
+            // Nouvel offset de chaque instruction conservée (et de la fin du code)
+            int[] offsets = new int[n + 1];
+            int taille = 0;
+            for (int i = 0; i <= n; i++) {
+                offsets[i] = taille;
+                if (i < n && accessible[i]) taille += INSTR_WIDTH;
+            }
+            if (taille == code.length) return code;
+
+            int[] compact = new int[taille];
+            int[][] originesCompact = new int[taille / INSTR_WIDTH][];
+            for (int i = 0; i < n; i++) {
+                if (!accessible[i]) continue;
+
+                int pc = i * INSTR_WIDTH, nouveau = offsets[i];
+                System.arraycopy(code, pc, compact, nouveau, INSTR_WIDTH);
+                if (code[pc] == OP_JUMP)
+                    compact[nouveau+1] = offsets[code[pc+1] / INSTR_WIDTH];
+                else if (code[pc] == OP_JUMP_IF_FALSE || code[pc] == OP_POUR)
+                    compact[nouveau+2] = offsets[code[pc+2] / INSTR_WIDTH];
+                originesCompact[nouveau / INSTR_WIDTH] = origines[i];
+            }
+
+            origines = originesCompact;
+            return compact;
+        }
+
+        // Remplace une expression constante par sa valeur, ses sous-expressions d'abord
+        private Expression fold(Expression e) {
+            Expression left, right, folded;
+            if (e instanceof OperatorExpression) {
+                OperatorExpression op = (OperatorExpression) e;
+                left = fold(op.left);   right = fold(op.right);
+                folded = new OperatorExpression(left, op.operator, right);
+            } else if (e instanceof ArithmeticExpression) {
+                ArithmeticExpression op = (ArithmeticExpression) e;
+                left = fold(op.left);   right = fold(op.right);
+                folded = new ArithmeticExpression(left, op.operator, right);
+            } else if (e instanceof ComparisonExpression) {
+                ComparisonExpression op = (ComparisonExpression) e;
+                left = fold(op.left);   right = fold(op.right);
+                folded = new ComparisonExpression(left, op.operator, right);
+            } else {
+                return e;
+            }
+
+            if (!(left instanceof Value) || !(right instanceof Value)) return folded;
+
+            // La valeur doit être la même dans les deux modes d'évaluation, sans erreur
+            try {
+                scratch.getErrors().clear();
+                Value valeur = folded.evaluate(scratch);
+                if (!scratch.getErrors().isEmpty()) return folded;
+
+                // Une chaîne (ex : "a" + 1) est lue en nombre par toNumber() dans les
+                // deux modes, erreur comprise : elle remplace l'expression telle quelle
+                if (valeur instanceof StringValue) return valeur;
+
+                double nombre = folded.evaluateDouble(scratch);
+                if (scratch.getErrors().isEmpty() && Double.compare(valeur.evaluateDouble(scratch), nombre) == 0)
+                    return valeur;
+            } catch (RuntimeException ex) {
+                // Erreur à l'exécution (ex : chaîne non numérique) : on la laisse se produire
+            }
+            return folded;
+        }
+
+        private int[] toArray(List<Integer> liste) {
+            int[] tableau = new int[liste.size()];
+            for (int i = 0; i < tableau.length; i++) tableau[i] = liste.get(i);
+            return tableau;
+        }
+
+        // Contexte vide pour évaluer les expressions constantes
+        private final ExecutionContext scratch;
+        private int[][] origines;
+    }
+
+    /**
+     * Analyse statique des boucles, exécutée sur le code compilé. Une boucle
+     * dont le corps ne contient ni action, ni capteur, ni affichage n'agit pas
+     * sur le monde :
+     * si elle ne peut pas se terminer avant d'épuiser le budget, l'exécution
+     * s'arrêtera sur un LOOP_LIMIT quoi qu'il arrive. On l'annonce alors dès
+     * l'entrée dans la boucle, sans dérouler les itérations.
+     *
+     * Les boucles dont le corps agit ne sont pas concernées : une action peut
+     * terminer le niveau (cf. Controleur) avant que le budget soit épuisé, et
+     * chaque affichage doit avoir lieu.
+     *
+     * Deux cas sont détectés, pour les boucles dont le corps ne saute pas hors
+     * de la boucle :
+     *  - tantque dont la condition ne lit aucune variable écrite dans le corps
+     *    (en particulier une condition constante) : si elle est vraie à
+     *    l'entrée, la boucle ne se termine jamais. Son JUMP_IF_FALSE devient
+     *    un OP_TANTQUE_INFINI ;
+     *  - pour dont la variable, initialisée par une constante, n'est écrite que
+     *    par son itération : le nombre de tours est alors calculé en simulant
+     *    l'en-tête seul, et comparé au budget restant à l'entrée. Son OP_POUR
+     *    devient un OP_POUR_BORNE.
+     */
+    private class LoopAnalyzer {
+        public LoopAnalyzer(int[] code, Statement[] statements) {
+            this.code = code;
+            this.statements = statements;
+            this.tours = new int[statements.length];
+            this.certaines = new int[statements.length][];
+        }
+
+        /**
+         * Analyse chaque boucle et remplace l'opcode des boucles détectées.
+         *
+         * @param simulation Programme sur lequel simuler les en-têtes des pour.
+         */
+        public void analyze(Program simulation) {
+            for (int pc = 0; pc < code.length; pc += INSTR_WIDTH) {
+                int id = code[pc+1];
+
+                if (code[pc] == OP_JUMP_IF_FALSE && statements[id] instanceof TantQueStatement) {
+                    Set<Integer> lectures = new HashSet<Integer>();
+                    if (!lire(((TantQueStatement) statements[id]).condition, lectures)) continue;
+                    if (!corpsInerte(pc, code[pc+2], lectures)) continue;
+
+                    code[pc] = OP_TANTQUE_INFINI;
+                } else if (code[pc] == OP_POUR) {
+                    PourStatement pour = (PourStatement) statements[id];
+                    int variable = ((AssignStatement) pour.initialisation).slot;
+
+                    // En-tête : init constante, itération et condition ne lisant que la variable
+                    Set<Integer> lectures = new HashSet<Integer>();
+                    if (!lire(((AssignStatement) pour.initialisation).value, lectures) || !lectures.isEmpty()) continue;
+                    if (((AssignStatement) pour.iteration).slot != variable) continue;
+                    if (!lire(((AssignStatement) pour.iteration).value, lectures)) continue;
+                    if (!lire(pour.condition, lectures)) continue;
+                    lectures.remove(variable);
+                    if (!lectures.isEmpty()) continue;
+
+                    // Le corps ne doit pas écrire la variable
+                    if (!corpsInerte(pc, code[pc+2], Collections.singleton(variable))) continue;
+
+                    int n = simuler(pour, simulation);
+                    if (n == 0) continue;
+
+                    tours[id] = n;
+                    certaines[id] = instructionsCertaines(pc, code[pc+2]);
+                    code[pc] = OP_POUR_BORNE;
+                }
+            }
+        }
+
+        /** Nombre de tours minimal de chaque pour (indexé comme les statements), 0 si inconnu **/
+        public int[] getTours() {
+            return tours;
+        }
+
+        /** Instructions exécutées à chaque tour de chaque pour, en-tête compris **/
+        public int[][] getCertaines() {
+            return certaines;
+        }
+
+        /**
+         * Vrai si le corps de la boucle [debut, fin) n'agit pas sur le monde,
+         * n'affiche rien, n'en sort pas par un saut, et n'écrit aucune des
+         * variables données.
+         */
+        private boolean corpsInerte(int debut, int fin, Set<Integer> lues) {
+            for (int pc = debut + INSTR_WIDTH; pc < fin; pc += INSTR_WIDTH) {
+                int cible;
+                switch (code[pc]) {
+                    case OP_DETECTER:
+                    case OP_ESTVIVANT:
+                        return false;
+                    case OP_JUMP:
+                        cible = code[pc+1];
+                    break;
+                    case OP_JUMP_IF_FALSE:
+                    case OP_POUR:
+                    case OP_TANTQUE_INFINI:
+                    case OP_POUR_BORNE:
+                        cible = code[pc+2];
+                    break;
+                    default:
+                        cible = debut;
+                    break;
+                }
+                if (cible < debut || cible >= fin) return false;
+
+                if (code[pc] == OP_JUMP) continue;
+                Statement st = statements[code[pc+1]];
+                if (st instanceof DeplacerStatement || st instanceof TirerStatement
+                        || st instanceof MeleeStatement || st instanceof RechargerStatement
+                        || st instanceof PrintStatement)
+                    return false;
+
+                if (ecrit(st, lues)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Vrai si l'instruction peut écrire l'une des variables données. Un
+         * pour imbriqué écrit son initialisation et son itération ; par
+         * prudence, les variables de sa condition comptent aussi comme écrites.
+         */
+        private boolean ecrit(Statement st, Set<Integer> lues) {
+            if (st instanceof AssignStatement) return lues.contains(((AssignStatement) st).slot);
+            if (st instanceof InputStatement) return lues.contains(((InputStatement) st).slot);
+            if (st instanceof PourStatement) {
+                PourStatement pour = (PourStatement) st;
+                if (ecrit(pour.initialisation, lues) || ecrit(pour.iteration, lues)) return true;
+
+                Set<Integer> operandes = new HashSet<Integer>();
+                lire(pour.condition, operandes);
+                return !Collections.disjoint(operandes, lues);
+            }
+            return false;
+        }
+
+        // Relève les slots lus par une expression : faux si elle interroge un capteur
+        private boolean lire(Expression e, Set<Integer> lectures) {
+            if (e instanceof DetecterEnnemi || e instanceof EstVivant) return false;
+
+            if (e instanceof VariableExpression) {
+                lectures.add(((VariableExpression) e).slot);
+            } else if (e instanceof NumericVariableExpression) {
+                lectures.add(((NumericVariableExpression) e).slot);
+            } else if (e instanceof OperatorExpression) {
+                return lire(((OperatorExpression) e).left, lectures) && lire(((OperatorExpression) e).right, lectures);
+            } else if (e instanceof ArithmeticExpression) {
+                return lire(((ArithmeticExpression) e).left, lectures) && lire(((ArithmeticExpression) e).right, lectures);
+            } else if (e instanceof ComparisonExpression) {
+                return lire(((ComparisonExpression) e).left, lectures) && lire(((ComparisonExpression) e).right, lectures);
+            }
+            return true;
+        }
+
+        // Compte les tours d'un pour en n'exécutant que son en-tête, au plus TOURS_MAX
+        private int simuler(PourStatement pour, Program simulation) {
+            try {
+                ExecutionContext ctx = new ExecutionContext(simulation);
+                if (!pour.iterer(ctx, false)) return 0;
+
+                int n = 1;
+                while (n < TOURS_MAX && pour.iterer(ctx, true)) n++;
+                return n;
+            } catch (RuntimeException e) {
+                return 0;
+            }
+        }
+
+        /**
+         * Instructions exécutées à chaque tour : l'en-tête et celles du corps
+         * qu'aucun saut en avant (si, sinon, boucle imbriquée) ne peut éviter.
+         */
+        private int[] instructionsCertaines(int debut, int fin) {
+            List<Integer> liste = new ArrayList<Integer>();
+            liste.add(debut / INSTR_WIDTH);
+
+            int evitees = debut;
+            for (int pc = debut + INSTR_WIDTH; pc < fin; pc += INSTR_WIDTH) {
+                if (pc >= evitees) liste.add(pc / INSTR_WIDTH);
+
+                int cible = (code[pc] == OP_JUMP) ? code[pc+1]
+                        : (code[pc] == OP_EXEC) ? pc : code[pc+2];
+                if (cible > evitees) evitees = cible;
+            }
+
+            int[] certaines = new int[liste.size()];
+            for (int i = 0; i < certaines.length; i++) certaines[i] = liste.get(i);
+            return certaines;
+        }
+
+        private final int[] code;
+        private final Statement[] statements;
+        private final int[] tours;
+        private final int[][] certaines;
+    }
+
     // Abstract syntax tree (AST) ----------------------------------------------
 
     // These classes define the syntax tree data structures. This is how code is
@@ -773,7 +1474,7 @@ public class Interpreter {
          * statement causes. "print" statements will display text here, "goto"
          * statements will change the current statement, etc.
          */
-        void execute();
+        void execute(ExecutionContext ctx);
     }
 
     /**
@@ -790,75 +1491,93 @@ public class Interpreter {
          * 
          * @return The value of the calculated expression.
          */
-        Value evaluate();
+        Value evaluate(ExecutionContext ctx);
+
+        /**
+         * Evalue l'expression directement en double. Par défaut on passe par
+         * evaluate() ; les noeuds numériques redéfinissent cette méthode pour
+         * calculer sans allouer de Value intermédiaire.
+         *
+         * @return La valeur numérique de l'expression.
+         */
+        default double evaluateDouble(ExecutionContext ctx) {
+            return evaluate(ctx).toNumber();
+        }
     }
     
     /**
      * A "print" statement evaluates an expression, converts the result to a
      * string, and displays it to the user.
      */
-    public class PrintStatement implements Statement {
+    public static class PrintStatement implements Statement {
         public PrintStatement(Expression expression) {
             this.expression = expression;
         }
         
-        public void execute() {
-            System.out.println(expression.evaluate().toString());
+        public void execute(ExecutionContext ctx) {
+            System.out.println(expression.evaluate(ctx).toString());
         }
 
-        private final Expression expression;
+        private Expression expression;
     }
     
     /**
      * An "input" statement reads input from the user and stores it in a
      * variable.
      */
-    public class InputStatement implements Statement {
-        public InputStatement(String name) {
-            this.name = name;
+    public static class InputStatement implements Statement {
+        public InputStatement(int slot) {
+            this.slot = slot;
         }
         
-        public void execute() {
+        public void execute(ExecutionContext ctx) {
             try {
-                String input = lineIn.readLine();
+                String input = ctx.lineIn().readLine();
                 
                 // Store it as a number if possible, otherwise use a string.
                 try {
                     double value = Double.parseDouble(input);
-                    variables.put(name, new NumberValue(value));
+                    ctx.variables[slot] = new NumberValue(value);
                 } catch (NumberFormatException e) {
-                    variables.put(name, new StringValue(input));
+                    ctx.variables[slot] = new StringValue(input);
                 }
             } catch (IOException e1) {
                 // HACK: Just ignore the problem.
             }
         }
 
-        private final String name;
+        private final int slot;
     }
 
     /**
      * An assignment statement evaluates an expression and stores the result in
      * a variable.
      */
-    public class AssignStatement implements Statement {
-        public AssignStatement(String name, Expression value) {
-            this.name = name;
+    public static class AssignStatement implements Statement {
+        public AssignStatement(int slot, Expression value) {
+            this.slot = slot;
             this.value = value;
         }
         
-        public void execute() {
-            variables.put(name, value.evaluate());
+        public void execute(ExecutionContext ctx) {
+            // Les variables numériques sont stockées sans boxing dans la frame numbers
+            if (numeric)
+                ctx.numbers[slot] = value.evaluateDouble(ctx);
+            else
+                ctx.variables[slot] = value.evaluate(ctx);
         }
 
-        private final String name;
-        private final Expression value;
+        private final int slot;
+        private Expression value;
+
+        // Vrai si le slot est typé numérique (défini par le Specializer)
+        private boolean numeric;
     }
     
     /**
      * A "goto" statement jumps execution to another place in the program.
      */
-    public class GotoStatement implements Statement {
+    public static class GotoStatement implements Statement {
         // Constructeur vide ajouté pour le else
         public GotoStatement() {  }
 
@@ -866,13 +1585,8 @@ public class Interpreter {
             this.label = label;
         }
         
-        public void execute() {
-            if (labels.containsKey(label)) {
-                currentStatement = labels.get(label).intValue();
-            } else {
-                addError("Label non reconnu", label, true);
-            }
-        }
+        // Le saut est résolu à la compilation et effectué par la VM
+        public void execute(ExecutionContext ctx) { }
 
         public void setLabel(String label) {
             this.label = label;
@@ -885,34 +1599,13 @@ public class Interpreter {
      * An if then statement jumps execution to another place in the program, but
      * only if an expression evaluates to something other than 0.
      */
-    public class IfThenStatement implements Statement {
+    public static class IfThenStatement implements Statement {
         public IfThenStatement(Expression condition) {
             this.condition = condition;
         }
         
-        public void execute() {
-            // Si le label vers lequel jump est enregistré, alors bingo
-            if (labels.containsKey(l_finSi)) {
-                double value = condition.evaluate().toNumber();
-                String jumpDir;
-
-                // Si ce qui est évalué est faux :
-                if (value == 0) {
-                    // On saute directement à l'else si il est défini, sinon au finsi
-                    if (l_else != null) {
-                        jumpDir = l_else;
-                    } else {
-                        jumpDir = l_finSi;
-                    }
-
-                    // On saute à la condition choisie
-                    currentStatement = labels.get(jumpDir).intValue();
-                }
-
-            } else {
-                addError("Label non reconnu", l_finSi, true);
-            }
-        }
+        // Le saut conditionnel est résolu à la compilation et effectué par la VM
+        public void execute(ExecutionContext ctx) { }
 
         /**   Getters   **/
         // Renvoie le label finsi
@@ -947,7 +1640,7 @@ public class Interpreter {
         /**   Attributs de classe   **/
 
         // Condition principale du si
-        private final Expression condition;
+        private Expression condition;
 
         // Labels finsi et else
         private String l_else, l_finSi;
@@ -958,14 +1651,8 @@ public class Interpreter {
 
     /**
      * PourStatement
-     */
-    // DEFAUT = jamais rentré
-    // ITER = deja rentré 1 fois au moins
-    private enum PourState {
-        DEFAUT, ITER
-    }
-
-    public class PourStatement implements Statement {
+     */
+    public static class PourStatement implements Statement {
         public PourStatement(Statement initialisation, Expression condition, Statement iteration, String label) {
             this.initialisation = initialisation;
             this.condition = condition;
@@ -973,27 +1660,17 @@ public class Interpreter {
             this.l_pour = label;
         }
 
-        public void execute() {
-            // Si le label vers lequel jump est enregistré, alors bingo
-            if (labels.containsKey(l_finPour)) {
-                if (etat == PourState.DEFAUT)
-                    initialisation.execute();
-                else
-                    iteration.execute();
-
-                // On évalue la condition
-                double value = condition.evaluate().toNumber();
-
-                // Si ce qui est évalué est faux
-                if (value == 0) {
-                    // On saute au fin tantQue
-                    currentStatement = labels.get(l_finPour).intValue();
-                } else if (etat == PourState.DEFAUT)
-                    // Si on était dans l'état défaut on passe dans l'état iteration
-                    etat = PourState.ITER;
-            } else {
-                addError("Label non reconnu", l_finPour, true);
-            }
+        // Le pour est exécuté par la VM au travers de iterer()
+        public void execute(ExecutionContext ctx) { }
+
+        // Initialise (premier passage) ou itère la boucle, et renvoie la valeur de la condition
+        public boolean iterer(ExecutionContext ctx, boolean dejaEntre) {
+            if (!dejaEntre)
+                initialisation.execute(ctx);
+            else
+                iteration.execute(ctx);
+
+            return condition.evaluateDouble(ctx) != 0;
         }
 
         public String getPour() {
@@ -1010,100 +1687,90 @@ public class Interpreter {
 
         // Label finPour et pour
         private String l_finPour, l_pour;
-
-        private PourState etat = PourState.DEFAUT;
     }
     /**
      * TirerStatement
      */
-    public class TirerStatement implements Statement {
+    public static class TirerStatement implements Statement {
         public TirerStatement(Direction dir) {
             this.dir = dir;
+            this.slot = -1;
+            this.var = null;
         }
 
-        public TirerStatement(String var) {
+        public TirerStatement(int slot, String var) {
+            this.dir = null;
+            this.slot = slot;
             this.var = var;
         }
 
-        public void execute() {
+        public void execute(ExecutionContext ctx) {
             // On initialise pauseFlag à true
-            pauseFlag = true;
+            ctx.pauseFlag = true;
 
             // On signale la raison de l'interruption
-            pauseState = PauseState.TIRER;
+            ctx.pauseState = ExecutionContext.PauseState.TIRER;
 
             // Cas avec direction passée en string
             if (dir != null) {
                 // On signale la direction dans laquelle le mec veut bouger
-                dirJ = dir;
+                ctx.dirJ = dir;
             } // Cas avec direction passée en variable
-            else if (variables.containsKey(var)) {
-                if (!(variables.get(var) instanceof DirectionValue)) {
-                    // => Par défaut, la direction sera HAUTDROIT
-                    dir = Direction.HD;
+            else if (ctx.variables[slot] != null) {
+                if (!(ctx.variables[slot] instanceof DirectionValue)) {
+                    // => Aucune direction la première fois, puis HAUTDROIT par défaut
+                    ctx.dirJ = ctx.directionParDefaut(this);
                 } else {
                     // On signale la direction dans laquelle le mec veut bouger
-                    dirJ = ((DirectionValue)variables.get(var)).getDirection();
+                    ctx.dirJ = ((DirectionValue)ctx.variables[slot]).getDirection();
                 }
             } else {
-                addError("Variable invalide : ", var, true);
+                ctx.addError("Variable invalide : ", var, true);
             }
         }
 
         // Direction du tir
-        private Direction dir;
+        private final Direction dir;
 
-        // Variable contenant la direction
-        private String var;
+        // Variable contenant la direction : slot dans la frame, et nom pour les erreurs
+        private final int slot;
+        private final String var;
     }
 
     /**
      * MeleeStatement
      */
-    public class MeleeStatement implements Statement {
+    public static class MeleeStatement implements Statement {
         public MeleeStatement(Direction dir) {
             this.dir = dir;
         }
 
-        public void execute() {
+        public void execute(ExecutionContext ctx) {
             // On initialise pauseFlag à true
-            pauseFlag = true;
+            ctx.pauseFlag = true;
 
             // On signale la raison de l'interruption
-            pauseState = PauseState.MELEE;
+            ctx.pauseState = ExecutionContext.PauseState.MELEE;
 
             // On signale la direction dans laquelle le mec veut attaquer
-            dirJ = dir;
+            ctx.dirJ = dir;
         }
 
         // Direction du tir
-        private Direction dir;
+        private final Direction dir;
     }
 
     /**
      * TantQueStatement
      */
-    public class TantQueStatement implements Statement {
+    public static class TantQueStatement implements Statement {
         public TantQueStatement(Expression condition, String label) {
             this.l_tantQue = label;
             this.condition = condition;
         }
 
-        public void execute() {
-            // Si le label vers lequel jump est enregistré, alors bingo
-            if (labels.containsKey(l_finTantQue)) {
-                double value = condition.evaluate().toNumber();
-
-                // Si ce qui est évalué est faux :
-                if (value == 0) {
-                    // On saute au fin tantQue
-                    currentStatement = labels.get(l_finTantQue).intValue();
-                }
-                // Sinon on ne fait rien
-            } else {
-                addError("Label non reconnu", l_finTantQue, true);
-            }
-        }
+        // Le saut conditionnel est résolu à la compilation et effectué par la VM
+        public void execute(ExecutionContext ctx) { }
 
         // Renvoie le label tant que
         public String getTantQue() { return this.l_tantQue; }
@@ -1112,7 +1779,7 @@ public class Interpreter {
         public void setFinTantQue(String label) { this.l_finTantQue = label; }
 
         // Condition du tantque
-        private final Expression condition;
+        private Expression condition;
 
         // Labels tantque et fintantque
         private String l_tantQue, l_finTantQue;
@@ -1121,72 +1788,77 @@ public class Interpreter {
     /**
      * DeplacerStatement
      */
-    public class DeplacerStatement implements Statement {
+    public static class DeplacerStatement implements Statement {
         public DeplacerStatement(Direction dir) {
             this.dir = dir;
+            this.slot = -1;
+            this.var = null;
         }
 
-        public DeplacerStatement(String var) {
+        public DeplacerStatement(int slot, String var) {
+            this.dir = null;
+            this.slot = slot;
             this.var = var;
         }
 
-        public void execute() {
+        public void execute(ExecutionContext ctx) {
             // On initialise pauseFlag à true
-            pauseFlag = true;
+            ctx.pauseFlag = true;
 
             // On signale la raison de l'interruption
-            pauseState = PauseState.DEPLACEMENT;
+            ctx.pauseState = ExecutionContext.PauseState.DEPLACEMENT;
 
             // Cas avec direction passée en string
             if (dir != null) {
                 // On signale la direction dans laquelle le mec veut bouger
-                dirJ = dir;
+                ctx.dirJ = dir;
             } // Cas avec direction passée en variable
-            else if (variables.containsKey(var)) {
-                if (!(variables.get(var) instanceof DirectionValue)) {
-                    // => Par défaut, la direction sera HAUTDROIT
-                    dir = Direction.HD;
+            else if (ctx.variables[slot] != null) {
+                if (!(ctx.variables[slot] instanceof DirectionValue)) {
+                    // => Aucune direction la première fois, puis HAUTDROIT par défaut
+                    ctx.dirJ = ctx.directionParDefaut(this);
                 } else {
                     // On signale la direction dans laquelle le mec veut bouger
-                    dirJ = ((DirectionValue)variables.get(var)).getDirection();
+                    ctx.dirJ = ((DirectionValue)ctx.variables[slot]).getDirection();
                 }
             } else {
-                addError("Variable invalide : ", var, true);
+                ctx.addError("Variable invalide : ", var, true);
             }
         }
 
         // Direction du déplacement
-        private Direction dir;
+        private final Direction dir;
 
-        // Nom de la variable contenant la direction
-        private String var;
+        // Variable contenant la direction : slot dans la frame, et nom pour les erreurs
+        private final int slot;
+        private final String var;
     }
 
     /**
      * RechargerStatement
      */
-    public class RechargerStatement implements Statement {
+    public static class RechargerStatement implements Statement {
         public RechargerStatement() {
         }
 
-        public void execute() {
+        public void execute(ExecutionContext ctx) {
             // On initialise pauseFlag à true
-            pauseFlag = true;
+            ctx.pauseFlag = true;
 
             // On signale la raison de l'interruption
-            pauseState = PauseState.RECHARGER;
+            ctx.pauseState = ExecutionContext.PauseState.RECHARGER;
         }
     }
 
     /**
      * DirectionValue
      */
-    public class DirectionValue implements Value {
+    public static class DirectionValue implements Value {
         public DirectionValue(Direction dir) {
             this.direction = dir;
         }
 
-        public Value evaluate() { return this; }
+        public Value evaluate(ExecutionContext ctx) { return this; }
 
         public Direction getDirection() { return direction; }
 
@@ -1208,91 +1880,105 @@ public class Interpreter {
             }
         }
 
-        private Direction direction;
+        private final Direction direction;
     }
 
     /**
      * DetecterEnnemi
      */
-    public class DetecterEnnemi implements Expression {
+    public static class DetecterEnnemi implements Expression {
         // Retourne la direction de l'ennemi s'il y en a une, sinon retourne 0
-        public Value evaluate() {
-            if (valued) {
-                valued = false;
-
-                return new DirectionValue(dirVar);
-            } else {
-                // On initialise pauseFlag à true
-                pauseFlag = true;
-
-                // On signale la raison de l'interruption
-                pauseState = PauseState.DETECTERENNEMI;
-
-                valued = true;
-
-                // HACK : pour poursuivre l'exécution par défaut, on renvoie une direction arbitraire
-                return new DirectionValue(Direction.HD);
-            }
+        // => la VM a interrogé le contrôleur juste avant le statement (OP_DETECTER)
+        public Value evaluate(ExecutionContext ctx) {
+            return ctx.capteurs[index];
         }
 
-        // Booléen déterminant si une valeur a été attribuée à cette expression
-        private boolean valued = false;
+        // Index du capteur dans la frame des capteurs (défini par le Compiler)
+        private int index = -1;
     }
 
     /**
      * EstVivant
      */
-    public class EstVivant implements Expression {
+    public static class EstVivant implements Expression {
         // Retourne true si l'ennemi du joueur est vivant, faux sinon
-        public Value evaluate() {
-            if (valued) {
-                valued = false;
-
-                return new NumberValue(boolVal);
-            } else {
-                // On initialise pauseFlag à true
-                pauseFlag = true;
-
-                // On signale la raison de l'interruption
-                pauseState = PauseState.ESTVIVANT;
-
-                valued = true;
-
-                // HACK : pour poursuivre l'exécution par défaut, on renvoie une valeur quelconque
-                return new NumberValue(0);
-            }
+        // => la VM a interrogé le contrôleur juste avant le statement (OP_ESTVIVANT)
+        public Value evaluate(ExecutionContext ctx) {
+            return ctx.capteurs[index];
         }
 
-        // Booléen déterminant si une valeur a été attribuée à cette expression
-        private boolean valued = false;
+        // Index du capteur dans la frame des capteurs (défini par le Compiler)
+        private int index = -1;
+    }
+
+    /**
+     * Etats d'un noeud auto-spécialisant. Un noeud démarre NON_INITIALISE,
+     * observe le type de ses valeurs à sa première évaluation et se réécrit
+     * pour ce cas. Quand l'hypothèse est invalidée, il redevient GENERIQUE
+     * définitivement (pas d'oscillation entre deux spécialisations).
+     *
+     * Un Program pouvant être exécuté sur plusieurs threads, l'état d'un noeud
+     * peut être lu ou écrit de façon concurrente. Cette course est bénigne :
+     * chaque chemin spécialisé revérifie le type de la valeur réellement
+     * obtenue avant de l'utiliser, un état périmé ne coûte donc qu'un passage
+     * par le chemin générique, jamais un résultat faux.
+     */
+    private enum Specialisation {
+        NON_INITIALISE, NOMBRE, CHAINE, DIRECTION, GENERIQUE
     }
 
     /**
      * A variable expression evaluates to the current value stored in that
      * variable.
+     *
+     * En contexte numérique, le noeud se spécialise sur NOMBRE s'il observe un
+     * NumberValue : la lecture se fait alors sans passer par l'interface Value.
      */
-    public class VariableExpression implements Expression {
-        public VariableExpression(String name) {
-            this.name = name;
+    public static class VariableExpression implements Expression {
+        public VariableExpression(int slot) {
+            this.slot = slot;
         }
         
-        public Value evaluate() {
-            if (variables.containsKey(name)) {
-                return variables.get(name);
+        public Value evaluate(ExecutionContext ctx) {
+            if (ctx.variables[slot] != null) {
+                return ctx.variables[slot];
             }
 
             // HACK : Par défaut, une variable non initialisée vaut zéro
             return new NumberValue(0);
         }
+
+        public double evaluateDouble(ExecutionContext ctx) {
+            Value value = ctx.variables[slot];
+
+            if (etat == Specialisation.NOMBRE) {
+                if (value instanceof NumberValue) return ((NumberValue) value).value;
+                etat = Specialisation.GENERIQUE; // Hypothèse invalidée
+            } else if (etat == Specialisation.NON_INITIALISE) {
+                etat = (value instanceof NumberValue) ? Specialisation.NOMBRE : Specialisation.GENERIQUE;
+            }
+
+            return (value != null) ? value.toNumber() : 0;
+        }
         
-        private final String name;
+        private final int slot;
+
+        // Etat de spécialisation du noeud
+        private Specialisation etat = Specialisation.NON_INITIALISE;
     }
     
     /**
      * An operator expression evaluates two expressions and then performs some
      * arithmetic operation on the results.
+     *
+     * Ces noeuds ne restent génériques que lorsque le type de l'opérande gauche
+     * n'est pas connu statiquement. Comme seul ce type détermine la sémantique
+     * de l'opérateur, le noeud s'auto-spécialise à sa première évaluation :
+     * nombre (calcul sur des double), chaîne (concaténation\comparaison) ou
+     * direction (égalité). Chaque spécialisation est protégée par un unique test
+     * de type sur l'opérande gauche.
      */
-    public class OperatorExpression implements Expression {
+    public static class OperatorExpression implements Expression {
         public OperatorExpression(Expression left, char operator,
                                   Expression right) {
             this.left = left;
@@ -1300,10 +1986,85 @@ public class Interpreter {
             this.right = right;
         }
         
-        public Value evaluate() {
-            Value leftVal = left.evaluate();
-            Value rightVal = right.evaluate();
-            
+        public Value evaluate(ExecutionContext ctx) {
+            Value leftVal = left.evaluate(ctx);
+            if (etat == Specialisation.NON_INITIALISE) etat = specialiser(leftVal);
+
+            if (estNumerique(leftVal))
+                return new NumberValue(evaluerNombre(ctx, leftVal.toNumber(), right.evaluateDouble(ctx)));
+
+            return evaluer(ctx, leftVal);
+        }
+
+        public double evaluateDouble(ExecutionContext ctx) {
+            Value leftVal = left.evaluate(ctx);
+            if (etat == Specialisation.NON_INITIALISE) etat = specialiser(leftVal);
+
+            // Chemin rapide : aucune Value n'est allouée pour le résultat
+            if (estNumerique(leftVal))
+                return evaluerNombre(ctx, leftVal.toNumber(), right.evaluateDouble(ctx));
+
+            return evaluer(ctx, leftVal).toNumber();
+        }
+
+        // Choisit la spécialisation correspondant au type observé de l'opérande gauche
+        private Specialisation specialiser(Value leftVal) {
+            if (leftVal instanceof NumberValue)
+                return Specialisation.NOMBRE;
+            if (leftVal instanceof DirectionValue && (operator == '=' || operator == '!'))
+                return Specialisation.DIRECTION;
+            if (leftVal instanceof StringValue && operator != '-' && operator != '*' && operator != '/')
+                return Specialisation.CHAINE;
+            return Specialisation.GENERIQUE;
+        }
+
+        // Vrai si le noeud est spécialisé en calcul numérique et que l'hypothèse tient
+        private boolean estNumerique(Value leftVal) {
+            return (etat == Specialisation.NOMBRE && leftVal instanceof NumberValue)
+                || (etat == Specialisation.DIRECTION && leftVal instanceof DirectionValue);
+        }
+
+        // Cas non numériques : spécialisation chaîne, ou dé-spécialisation vers le cas générique
+        private Value evaluer(ExecutionContext ctx, Value leftVal) {
+            if (etat == Specialisation.CHAINE && leftVal instanceof StringValue)
+                return evaluerChaine(ctx, leftVal.toString(), right.evaluate(ctx).toString());
+
+            // L'hypothèse est invalidée : le noeud redevient générique
+            etat = Specialisation.GENERIQUE;
+            return evaluerGenerique(ctx, leftVal, right.evaluate(ctx));
+        }
+
+        // Opérateur appliqué à deux nombres (les directions sont comparées par leur valeur)
+        private double evaluerNombre(ExecutionContext ctx, double leftVal, double rightVal) {
+            switch (operator) {
+                case '=': return (leftVal == rightVal) ? 1 : 0;
+                case '!': return (leftVal == rightVal) ? 0 : 1;
+                case '+': return leftVal + rightVal;
+                case '-': return leftVal - rightVal;
+                case '*': return leftVal * rightVal;
+                case '/': return (rightVal == 0.0) ? 0 : leftVal / rightVal;
+                case '<': return (leftVal < rightVal) ? 1 : 0;
+                case '>': return (leftVal > rightVal) ? 1 : 0;
+            }
+            ctx.addError("Opérateur non reconnu", operator+"", true);
+            return 0;
+        }
+
+        // Opérateur appliqué à une chaîne à gauche
+        private Value evaluerChaine(ExecutionContext ctx, String leftVal, String rightVal) {
+            switch (operator) {
+                case '+': return new StringValue(leftVal + rightVal);
+                case '=': return new NumberValue(leftVal.equals(rightVal) ? 1 : 0);
+                case '!': return new NumberValue(leftVal.equals(rightVal) ? 0 : 1);
+                case '<': return new NumberValue((leftVal.compareTo(rightVal) < 0) ? 1 : 0);
+                case '>': return new NumberValue((leftVal.compareTo(rightVal) > 0) ? 1 : 0);
+            }
+            ctx.addError("Opérateur non reconnu", operator+"", true);
+            return null;
+        }
+
+        // Chemin générique : sémantique complète, avec tests de type sur les deux valeurs
+        private Value evaluerGenerique(ExecutionContext ctx, Value leftVal, Value rightVal) {
             switch (operator) {
             case '=':
                 // Coerce to the left argument's type, then compare.
@@ -1369,15 +2130,99 @@ public class Interpreter {
                             rightVal.toString()) > 0) ? 1 : 0);
                 }
             }
-            addError("Opérateur non reconnu", operator+"", true);
+            ctx.addError("Opérateur non reconnu", operator+"", true);
             return null; // On renvoie null par défaut pour continuer l'analyse syntaxique
         }
-        
+
+        // Etat de spécialisation du noeud
+        private Specialisation etat = Specialisation.NON_INITIALISE;
+
         private final Expression left;
         private final char operator;
         private final Expression right;
     }
     
+    /**
+     * Lecture d'une variable typée numérique : la valeur est lue dans la frame
+     * numbers, sans boxing. Une variable non initialisée vaut zéro.
+     */
+    public static class NumericVariableExpression implements Expression {
+        public NumericVariableExpression(int slot) {
+            this.slot = slot;
+        }
+
+        public Value evaluate(ExecutionContext ctx) { return new NumberValue(ctx.numbers[slot]); }
+        public double evaluateDouble(ExecutionContext ctx) { return ctx.numbers[slot]; }
+
+        private final int slot;
+    }
+
+    /**
+     * Opération arithmétique (+ - * /) dont les opérandes sont numériques :
+     * le calcul se fait entièrement sur des double. Seul evaluate(), utilisé
+     * hors des contextes numériques, alloue le NumberValue résultat.
+     */
+    public static class ArithmeticExpression implements Expression {
+        public ArithmeticExpression(Expression left, char operator, Expression right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        public Value evaluate(ExecutionContext ctx) { return new NumberValue(evaluateDouble(ctx)); }
+
+        public double evaluateDouble(ExecutionContext ctx) {
+            double leftVal = left.evaluateDouble(ctx);
+            double rightVal = right.evaluateDouble(ctx);
+
+            switch (operator) {
+                case '+': return leftVal + rightVal;
+                case '-': return leftVal - rightVal;
+                case '*': return leftVal * rightVal;
+                case '/':
+                default:
+                    // Si le nombre est égal à zéro, on lisse le résultat par 0 pour éviter l'erreur
+                    return (rightVal == 0.0) ? 0 : leftVal / rightVal;
+            }
+        }
+
+        private final Expression left;
+        private final char operator;
+        private final Expression right;
+    }
+
+    /**
+     * Comparaison (= ! < >) dont l'opérande gauche est numérique (ou une
+     * direction pour = et !) : le résultat 1\0 est calculé sur des double.
+     */
+    public static class ComparisonExpression implements Expression {
+        public ComparisonExpression(Expression left, char operator, Expression right) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+        }
+
+        public Value evaluate(ExecutionContext ctx) { return new NumberValue(evaluateDouble(ctx)); }
+
+        public double evaluateDouble(ExecutionContext ctx) {
+            double leftVal = left.evaluateDouble(ctx);
+            double rightVal = right.evaluateDouble(ctx);
+
+            switch (operator) {
+                case '=': return (leftVal == rightVal) ? 1 : 0;
+                case '!': return (leftVal == rightVal) ? 0 : 1;
+                case '<': return (leftVal < rightVal) ? 1 : 0;
+                case '>':
+                default:
+                    return (leftVal > rightVal) ? 1 : 0;
+            }
+        }
+
+        private final Expression left;
+        private final char operator;
+        private final Expression right;
+    }
+
     // Value types -------------------------------------------------------------
     
     /**
@@ -1412,14 +2257,15 @@ public class Interpreter {
     /**
      * A numeric value. Jasic uses doubles internally for all numbers.
      */
-    public class NumberValue implements Value {
+    public static class NumberValue implements Value {
         public NumberValue(double value) {
             this.value = value;
         }
         
         @Override public String toString() { return Double.toString(value); }
         public double toNumber() { return value; }
-        public Value evaluate() { return this; }
+        public Value evaluate(ExecutionContext ctx) { return this; }
+        public double evaluateDouble(ExecutionContext ctx) { return value; }
 
         private final double value;
     }
@@ -1427,14 +2273,14 @@ public class Interpreter {
     /**
      * A string value.
      */
-    public class StringValue implements Value {
+    public static class StringValue implements Value {
         public StringValue(String value) {
             this.value = value;
         }
         
         @Override public String toString() { return value; }
         public double toNumber() { return Double.parseDouble(value); }
-        public Value evaluate() { return this; }
+        public Value evaluate(ExecutionContext ctx) { return this; }
 
         private final String value;
     }
@@ -1442,160 +2288,511 @@ public class Interpreter {
     // Interpreter -------------------------------------------------------------
     
     /**
-     * Constructs a new Jasic instance. The instance stores the global state of
-     * the interpreter such as the values of all of the variables and the
-     * current statement.
+     * Constructs a new Jasic instance. L'interpréteur pilote une exécution
+     * pour le contrôleur : l'état de cette exécution (variables, instruction
+     * courante, pause) est porté par un ExecutionContext, le programme compilé
+     * restant partageable entre interpréteurs et threads.
      */
     public Interpreter() {
         // On initialise la liste des erreurs
-        errMsg = new ArrayList<String[]>();
+        errMsg = new ArrayList<Diagnostic>();
 
         // On initialise les flags d'états
-        flagErrors = false; pauseFlag = false;
+        flagErrors = false;
 
-        variables = new HashMap<String, Value>();
-        labels = new HashMap<String, Integer>();
-        enumVars = new ArrayList<>();
-        
-        InputStreamReader converter = new InputStreamReader(System.in);
-        lineIn = new BufferedReader(converter);
+        enumVars = new HashSet<>();
     }
 
     /**
-     * This is where the magic happens. This runs the code through the parsing
-     * pipeline to generate the AST. Then it executes each statement. It keeps
-     * track of the current line in a member variable that the statement objects
-     * have access to. This lets "goto" and "if then" do flow control by simply
-     * setting the index of the current statement.
-     *
-     * In an interpreter that didn't mix the interpretation logic in with the
-     * AST node classes, this would be doing a lot more work.
+     * This is where the magic happens. The source is compiled into a flat
+     * opcode array where every jump target is an absolute offset (or fetched
+     * from the ProgramCache if the same script was already compiled). Then it
+     * executes the opcodes in a dispatch loop: "goto", "si", "tantque" and
+     * "pour" do flow control by simply setting the program counter.
      * 
      * @param source A string containing the source code of a .jas script to
      *               interpret.
      */
     public InterpreterMessage interpret(String source) {
+        return interpret(ProgramCache.Instance().obtenir(source));
+    }
+
+    /**
+     * Exécute un programme déjà compilé, depuis son début.
+     *
+     * @param  program Le programme à exécuter.
+     * @return         Le message correspondant à la première interruption.
+     */
+    public InterpreterMessage interpret(Program program) {
         InterpreterMessage msg;
+        profil = (profilage && !program.hasErrors()) ? new Profile(program) : null;
+
+        // Si aucune erreur n'a été détectée, on interprète toutes les instructions
+        if (!program.hasErrors()) {
+            // Nouveau contexte : frame vide et compteur ordinal à 0
+            ctx = new ExecutionContext(program, budget);
+            ctx.setWorldQuery(monde);
+            ctx.setProfile(profil);
+            ctx.setTrace(trace);
+            ctx.setAnnulation(annulation);
+            msg = execute(ctx);
+        // Sinon on affiche toutes les erreurs détectées
+        } else {
+            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.SYNTAX_ERR);
+            msg.errorList = new ArrayList<Diagnostic>(program.getErrors());
+        }
+
+        return msg;
+    }
+
+    /**
+     * Compile un script : tokenizing, parsing, spécialisation des types puis
+     * génération des opcodes. Les erreurs de syntaxe sont conservées dans le
+     * programme produit.
+     *
+     * @param  source Le script à compiler.
+     * @return        Le programme compilé.
+     */
+    public static Program compile(String source) {
+        return new Interpreter().compiler(source, true);
+    }
+
+    /**
+     * Compile un script sans les passes d'optimisation (Optimizer, LoopAnalyzer) :
+     * programme de référence pour vérifier qu'elles ne changent pas l'exécution (cf. Parite).
+     */
+    static Program compileSansOptimisation(String source) {
+        return new Interpreter().compiler(source, false);
+    }
+
+    /**
+     * Vérifie la syntaxe d'un fragment de script, sans le compiler : tokenizing
+     * et parsing uniquement, qui relèvent les mêmes erreurs que la compilation.
+     * Utilisé pour la vérification pendant la frappe, sur les seuls blocs modifiés.
+     *
+     * @param  source Le fragment à vérifier.
+     * @return        Les erreurs, localisées dans le fragment.
+     */
+    public static List<Diagnostic> verifier(String source) {
+        return verifier(source, "");
+    }
+
+    /**
+     * Vérifie un fragment du script : seules les variables assignées avant le
+     * fragment lui sont connues, comme lors de la validation du script entier
+     * (une direction utilisée avant son assignation reste une erreur).
+     *
+     * @param  fragment Le fragment à vérifier.
+     * @param  avant    Le texte du script qui précède le fragment.
+     * @return          Les erreurs, localisées dans le fragment.
+     */
+    public static List<Diagnostic> verifier(String fragment, String avant) {
+        Interpreter interpreter = new Interpreter();
+        interpreter.assignees(avant);
+        return interpreter.verification(fragment);
+    }
+
+    // Relève les noms assignés dans le texte, comme le ferait parseAssign
+    private void assignees(String texte) {
+        TokenStream tokens = TokenStream.scan(texte);
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            if (tokens.type(i) == TokenType.WORD && tokens.type(i + 1) == TokenType.EQUALS)
+                enumVars.add(tokens.text(i));
+        }
+    }
 
+    private List<Diagnostic> verification(String source) {
+        TokenStream tokens = TokenStream.scan(source + "\n\n");
+
+        new Parser(tokens).parse(new HashMap<String, Integer>());
+        return errMsg;
+    }
+
+    private Program compiler(String source, boolean optimiser) {
         // HACK : ajout d'un saut de ligne à la fin de la source pour éviter une erreur
         source += "\n\n";
 
         // Tokenize.
-        List<Token> tokens = tokenize(source);
+        TokenStream tokens = TokenStream.scan(source);
         
         // Parse.
+        Map<String, Integer> labels = new HashMap<String, Integer>();
         Parser parser = new Parser(tokens);
-        instructions = parser.parse(labels);
+        List<Statement> parsed = parser.parse(labels);
 
-        // Si aucune erreur n'a été détectée, on interprète toutes les instructions
+        Optimizer optimizer = new Optimizer();
         if (!flagErrors) {
-            // On reset le counter de l'instruction courante, et on lance l'interprétation
-            currentStatement = 0;
-            msg = execute();
-        // Sinon on affiche toutes les erreurs détectées
-        } else {
-            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.SYNTAX_ERR);
-            msg.errorList = errMsg;
+            new Specializer(parsed, parser.getNbSlots()).specialize();
+            if (optimiser) optimizer.fold(parsed);
         }
 
-        return msg;
+        // Compile : les labels sont résolus en offsets, la map n'est plus utilisée ensuite
+        Compiler compiler = new Compiler(parsed, labels);
+        int[] code = compiler.compile();
+        Statement[] statements = parsed.toArray(new Statement[parsed.size()]);
+        Expression[] conditions = new Expression[statements.length];
+        for (int i = 0; i < statements.length; i++) {
+            if (statements[i] instanceof IfThenStatement)
+                conditions[i] = ((IfThenStatement) statements[i]).condition;
+            else if (statements[i] instanceof TantQueStatement)
+                conditions[i] = ((TantQueStatement) statements[i]).condition;
+        }
+
+        // Optimisation du code : chaque instruction garde les instructions d'origine dont elle paie le coût
+        int[] codeSource = code;
+        int[][] origines = new int[code.length / INSTR_WIDTH][];
+        for (int i = 0; i < origines.length; i++) origines[i] = new int[]{ i };
+        if (optimiser && !flagErrors) {
+            code = optimizer.optimize(codeSource, statements);
+            origines = optimizer.getOrigines();
+        }
+
+        // Analyse des boucles : celles qui ne peuvent qu'épuiser le budget sont marquées
+        LoopAnalyzer boucles = new LoopAnalyzer(code, statements);
+        if (optimiser && !flagErrors) {
+            boucles.analyze(new Program(code, codeSource, origines, statements, conditions, parser.getOperateurs(),
+                    parser.getLignes(), new int[statements.length], new int[statements.length][],
+                    parser.getNbSlots(), compiler.getNbCapteurs(), Collections.<Diagnostic>emptyList()));
+        }
+
+        return new Program(code, codeSource, origines, statements, conditions, parser.getOperateurs(),
+                parser.getLignes(), boucles.getTours(), boucles.getCertaines(),
+                parser.getNbSlots(), compiler.getNbCapteurs(), errMsg);
     }
 
-    /** Démarre l'interprétation du code **/
-    private InterpreterMessage execute() {
-        // Par défaut, on renvoie le message fin du programme
-        InterpreterMessage msg = new InterpreterMessage(InterpreterMessage.TypeMessage.END_PRG);
+    /**
+     * Démarre (ou reprend) l'interprétation du code dans un contexte. La
+     * méthode ne lit que le contexte et le programme, immuable : elle peut
+     * être appelée en parallèle sur des contextes différents.
+     *
+     * Si le programme a été promu au second tier (cf. BytecodeCompiler), le
+     * bytecode généré remplace la boucle de dispatch. Tout l'état étant dans
+     * le contexte, on peut changer de tier entre deux reprises.
+     *
+     * @param  ctx Le contexte d'exécution.
+     * @return     Le message correspondant à la prochaine interruption.
+     */
+    public static InterpreterMessage execute(ExecutionContext ctx) {
+        // Nouvelle exécution : on la décompte pour la promotion au second tier
+        if (!ctx.demarre) {
+            ctx.demarre = true;
+            ctx.program.compterExecution();
+        }
 
-        // On interprète tant qu'on arrive pas à la dernière ligne de code
-        while (currentStatement < instructions.size()) {
-            int thisStatement = currentStatement;
-            currentStatement++;
-            instructions.get(thisStatement).execute(); // On exécute après au cas où l'instruction modifie la ligne
+        // Reprise après une interrogation : on range la valeur fournie par le contrôleur
+        reprendre(ctx);
 
-            // On incrémente le compteur d'instructions
-            nbInstr++;
+        // Si l'exécution a été annulée pendant une pause, on ne reprend pas
+        ctx.demarrerMesure();
+        CompiledCode natif = ctx.program.natif;
+        if (!ctx.annulee()) {
+            if (natif != null && ctx.profil == null && ctx.trace == null)
+                natif.run(ctx, ctx.program.statements, ctx.program.conditions);
+            else
+                dispatch(ctx);
+        }
+        ctx.arreterMesure();
+
+        InterpreterMessage msg = message(ctx);
+        if (ctx.profil != null) ctx.profil.interruption(msg.type);
+        return msg;
+    }
 
-            // Si on dépasse le nombre INSTR_LIMIT, on envoie un message approprié au contrôleur
-            // et on sort de la boucle
-            if (nbInstr > INSTR_LIMIT) {
-                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.LOOP_LIMIT);
+    // Boucle de dispatch : on interprète tant qu'on arrive pas à la fin du code
+    private static void dispatch(ExecutionContext ctx) {
+        final int[] code = ctx.program.code;
+        final Statement[] statements = ctx.program.statements;
+        final Expression[] conditions = ctx.program.conditions;
+        final long[] couts = ctx.couts;
+        final long limite = ctx.budget.limite;
+        final boolean surveille = ctx.surveille();
+        final Profile profil = ctx.profil;
+        final TraceSink trace = ctx.trace;
+        int pc = ctx.pc;
+
+        while (pc < code.length) {
+            int thisPc = pc;
+            pc += INSTR_WIDTH; // On avance avant d'exécuter au cas où l'instruction modifie pc
+            if (profil != null) profil.instruction(thisPc / INSTR_WIDTH);
+            if (trace != null && !Program.capteur(code, thisPc / INSTR_WIDTH))
+                trace.statement(ctx.program.statementDe(thisPc / INSTR_WIDTH));
+
+            switch (code[thisPc]) {
+                case OP_EXEC:
+                    statements[code[thisPc+1]].execute(ctx);
                 break;
-            } else {
-                // Si l'interprétation doit être pausée, on sort de la boucle et on envoie un message correspondant
-                if (pauseFlag) {
-                    switch (pauseState) {
-                        // Si on s'est arrêté à cause d'une divison par zéro => afficher
-                        // ....
-                        case DEPLACEMENT:
-                            // Si on s'arrête à cause d'un déplacement joueur, on l'effectue
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.DEPLACEMENT);
-                            msg.dirInst = dirJ; // => suppose que dirJ a été initialisé !
-                        break;
-                        case TIRER:
-                            // Si on s'arrête à cause d'un tir joueur, on l'effectue
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.TIRER);
-                            msg.dirInst = dirJ; // => suppose que dirJ a été initialisé !
-                        break;
-                        case MELEE:
-                            // Si on s'arrête à cause d'une attaque au CAC, on l'effectue
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.MELEE);
-                            msg.dirInst = dirJ; // => suppose que dirJ a été initialisé !
-                        break;
-                        case DETECTERENNEMI:
-                            // Si le joueur demande la position de l'ennemi, on la renvoie
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.DETECTERENNEMI);
-                            // Dans ce cas, on retourne à la même instruction pour qu'elle soit exécutée avec une valeur
-                            currentStatement = thisStatement;
-                        break;
-                        case ESTVIVANT:
-                            // On donne au joueur l'information sur le statut vivant de son ennemi
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.ESTVIVANT);
-                            // Dans ce cas, on retourne à la même instruction pour qu'elle soit exécutée avec une valeur
-                            currentStatement = thisStatement;
-                        break;
-                        case RECHARGER:
-                            // Le joueur prend le temps de recharger ses munitions
-                            msg = new InterpreterMessage(InterpreterMessage.TypeMessage.RECHARGER);
-                        break;
+                case OP_JUMP:
+                    pc = code[thisPc+1];
+
+                    // Les plafonds de temps\mémoire et l'annulation ne sont vérifiés qu'aux sauts
+                    if (surveille && ctx.plafondAtteint()) {
+                        ctx.pc = pc;
+                        return;
+                    }
+                break;
+                case OP_JUMP_IF_FALSE:
+                    if (conditions[code[thisPc+1]].evaluateDouble(ctx) == 0)
+                        pc = code[thisPc+2];
+                break;
+                case OP_TANTQUE_INFINI:
+                    if (conditions[code[thisPc+1]].evaluateDouble(ctx) == 0) {
+                        pc = code[thisPc+2];
+                    } else {
+                        // La condition ne changera plus : la boucle ne se terminera pas
+                        diverger(ctx, thisPc);
+                        return;
+                    }
+                break;
+                case OP_POUR_BORNE:
+                    // A l'entrée, on vérifie que le budget suffit pour tous les tours
+                    if (borneDepassee(ctx, code[thisPc+1])) {
+                        ctx.pc = thisPc;
+                        return;
                     }
+                    pc = tourDePour(ctx, thisPc, pc);
+                break;
+                case OP_POUR:
+                    pc = tourDePour(ctx, thisPc, pc);
+                break;
+                case OP_DETECTER:
+                case OP_ESTVIVANT:
+                    // Capteur d'une partie du pour qui ne sera pas évaluée : on passe, sans décompte
+                    if (!capter(ctx, thisPc)) continue;
+                break;
+            }
+
+            // On décompte le coût de l'instruction, et on sort de la boucle si le
+            // budget est épuisé ou si l'interprétation doit être pausée
+            if ((ctx.consommation += couts[thisPc / INSTR_WIDTH]) > limite || ctx.pauseFlag) break;
+        }
 
-                    // On reset les paramètres de la pause, par sécurité
-                    pauseState = null; dirJ = null;
+        // On sauvegarde le compteur ordinal pour une éventuelle reprise
+        ctx.pc = pc;
+    }
 
-                    break;
-                }
-            }
+    // Range dans le contexte la valeur d'un capteur fournie par le contrôleur
+    static void reprendre(ExecutionContext ctx) {
+        if (ctx.pcCapteur < 0) return;
+
+        final int[] code = ctx.program.code;
+        int idCapteur = code[ctx.pcCapteur+1];
+        if (code[ctx.pcCapteur] == OP_DETECTER)
+            ctx.capteurs[idCapteur] = new DirectionValue(ctx.dirVar);
+        else
+            ctx.capteurs[idCapteur] = new NumberValue(ctx.boolVal);
+        ctx.pcCapteur = -1;
+
+        if (ctx.trace != null) tracerCapteur(ctx.trace, ctx.capteurs[idCapteur]);
+    }
+
+    // Transmet à la trace la valeur obtenue par un capteur
+    private static void tracerCapteur(TraceSink trace, Value valeur) {
+        if (valeur instanceof DirectionValue)
+            trace.detecterEnnemi(((DirectionValue) valeur).getDirection());
+        else
+            trace.estVivant(valeur.toNumber() != 0);
+    }
+
+    // Itération d'un pour : faux si on sort de la boucle
+    static boolean iterer(ExecutionContext ctx, int idPour) {
+        final boolean[] pourIter = ctx.pourIter;
+        if (((PourStatement) ctx.program.statements[idPour]).iterer(ctx, pourIter[idPour])) {
+            pourIter[idPour] = true;
+            return true;
+        }
+
+        // Comme dans l'interpréteur d'origine, un pour déjà entré n'est pas
+        // réinitialisé : s'il est de nouveau atteint, il reprend à l'itération
+        return false;
+    }
+
+    // Tour du pour de l'instruction thisPc : renvoie pc pour entrer dans le corps, ou la sortie de la boucle
+    private static int tourDePour(ExecutionContext ctx, int thisPc, int pc) {
+        final int[] code = ctx.program.code;
+        return iterer(ctx, code[thisPc+1]) ? pc : code[thisPc+2];
+    }
+
+    // Entrée dans un tantque dont la condition invariante est vraie : l'exécution s'arrête
+    static void diverger(ExecutionContext ctx, int thisPc) {
+        ctx.depassement = "Boucle infinie : la condition du tantque ne change jamais";
+        ctx.pc = thisPc;
+    }
+
+    // Entrée dans un pour au nombre de tours connu : vrai si le budget ne peut pas suffire
+    static boolean borneDepassee(ExecutionContext ctx, int idPour) {
+        if (ctx.pourIter[idPour]) return false;
+
+        long coutTour = 0;
+        for (int instruction : ctx.program.certaines[idPour]) coutTour += ctx.couts[instruction];
+        if (ctx.consommation + ctx.program.tours[idPour] * coutTour <= ctx.budget.limite) return false;
+
+        ctx.depassement = "Boucle trop longue : " + ctx.program.tours[idPour] + " tours dépassent le budget";
+        return true;
+    }
+
+    // Interrogation du capteur de l'instruction thisPc : faux si sa garde est fermée
+    static boolean capter(ExecutionContext ctx, int thisPc) {
+        final int[] code = ctx.program.code;
+        if (!gardeOuverte(code[thisPc+2], ctx.pourIter)) return false;
+
+        // Si le monde est accessible, le capteur est lu directement, sans pause
+        if (ctx.monde != null) {
+            if (code[thisPc] == OP_DETECTER)
+                ctx.capteurs[code[thisPc+1]] = new DirectionValue(ctx.monde.detecterEnnemi());
+            else
+                ctx.capteurs[code[thisPc+1]] = new NumberValue(ctx.monde.estVivant() ? 1 : 0);
+
+            if (ctx.trace != null) tracerCapteur(ctx.trace, ctx.capteurs[code[thisPc+1]]);
+            return true;
+        }
+
+        // Sinon on suspend l'exécution : le statement suivant sera exécuté à la reprise
+        ctx.pauseFlag = true;
+        ctx.pauseState = (code[thisPc] == OP_DETECTER)
+                ? ExecutionContext.PauseState.DETECTERENNEMI
+                : ExecutionContext.PauseState.ESTVIVANT;
+        ctx.pcCapteur = thisPc;
+        return true;
+    }
+
+    // Message correspondant à l'état du contexte à la sortie de l'exécution
+    private static InterpreterMessage message(ExecutionContext ctx) {
+        // Si l'exécution a été annulée, on le signale avant toute autre interruption
+        if (ctx.annule) {
+            InterpreterMessage msg = new InterpreterMessage(InterpreterMessage.TypeMessage.ANNULE);
+            msg.text = ctx.annulation.raison();
+            return msg;
         }
 
+        // Si le budget est épuisé, on envoie un message approprié au contrôleur
+        if (ctx.consommation > ctx.budget.limite || ctx.depassement != null) {
+            InterpreterMessage msg = new InterpreterMessage(InterpreterMessage.TypeMessage.LOOP_LIMIT);
+            msg.text = (ctx.depassement != null) ? ctx.depassement : "Nombre maximal d'instructions dépassé";
+            return msg;
+        }
+
+        // Par défaut, on renvoie le message fin du programme
+        if (!ctx.pauseFlag)
+            return new InterpreterMessage(InterpreterMessage.TypeMessage.END_PRG);
+
+        // Si l'interprétation a été pausée, on envoie un message correspondant
+        InterpreterMessage msg = null;
+        switch (ctx.pauseState) {
+            // Si on s'est arrêté à cause d'une divison par zéro => afficher
+            // ....
+            case DEPLACEMENT:
+                // Si on s'arrête à cause d'un déplacement joueur, on l'effectue
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.DEPLACEMENT);
+                msg.dirInst = ctx.dirJ; // => suppose que dirJ a été initialisé !
+            break;
+            case TIRER:
+                // Si on s'arrête à cause d'un tir joueur, on l'effectue
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.TIRER);
+                msg.dirInst = ctx.dirJ; // => suppose que dirJ a été initialisé !
+            break;
+            case MELEE:
+                // Si on s'arrête à cause d'une attaque au CAC, on l'effectue
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.MELEE);
+                msg.dirInst = ctx.dirJ; // => suppose que dirJ a été initialisé !
+            break;
+            case DETECTERENNEMI:
+                // Si le joueur demande la position de l'ennemi, on la renvoie
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.DETECTERENNEMI);
+            break;
+            case ESTVIVANT:
+                // On donne au joueur l'information sur le statut vivant de son ennemi
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.ESTVIVANT);
+            break;
+            case RECHARGER:
+                // Le joueur prend le temps de recharger ses munitions
+                msg = new InterpreterMessage(InterpreterMessage.TypeMessage.RECHARGER);
+            break;
+        }
+
+        // On reset les paramètres de la pause, par sécurité
+        ctx.pauseState = null; ctx.dirJ = null;
+
         return msg;
     }
 
+    // Vrai si la garde d'une interrogation de capteur autorise son exécution
+    private static boolean gardeOuverte(int garde, boolean[] pourIter) {
+        if (garde == GARDE_AUCUNE) return true;
+
+        boolean dejaEntre = pourIter[(garde - 1) / 2];
+        return ((garde - 1) % 2 == 0) ? !dejaEntre : dejaEntre;
+    }
+
     /** Redémarre l'interpréteur là où on l'a arrêté **/
     public InterpreterMessage restart() {
         // On repasse le flag à false
-        pauseFlag = false;
+        ctx.pauseFlag = false;
 
-        // On continue l'interprétation (on reprend à la ligne currentStatement)
-        InterpreterMessage msg = execute();
+        // On continue l'interprétation (on reprend à l'offset pc)
+        InterpreterMessage msg = execute(ctx);
 
         return msg;
     }
 
+    /**
+     * Définit l'accès au monde utilisé par les capteurs des prochaines
+     * exécutions. Sans lui, chaque capteur suspend l'exécution et le
+     * contrôleur répond par setDirVar\setBoolVar avant restart().
+     */
+    public void setWorldQuery(WorldQuery monde) {
+        this.monde = monde;
+    }
+
+    /**
+     * Définit le budget des prochaines exécutions (cf. MapInfo) : null rétablit
+     * le budget par défaut.
+     */
+    public void setBudget(Budget budget) {
+        this.budget = (budget != null) ? budget : Budget.DEFAUT;
+    }
+
+    /**
+     * Active le profilage des prochaines exécutions : nombre d'exécutions et
+     * temps passé par statement (cf. Profile).
+     */
+    public void setProfilage(boolean profilage) {
+        this.profilage = profilage;
+    }
+
+    /**
+     * Rend les prochaines exécutions annulables : la poignée est vérifiée à
+     * chaque reprise et à chaque saut (null : exécutions non annulables).
+     */
+    public void setAnnulation(Annulation annulation) {
+        this.annulation = annulation;
+    }
+
+    /** Définit le destinataire de la trace des prochaines exécutions (null : pas de trace) **/
+    public void setTrace(TraceSink trace) {
+        this.trace = trace;
+    }
+
+    /** Profil de l'exécution en cours (null si elle n'est pas profilée) **/
+    public Profile getProfile() {
+        return profil;
+    }
+
     /** Assigne une valeur aux variables ouvertes de l'interpréteur **/
     public void setDirVar(Direction dir) {
-        dirVar = dir;
+        ctx.dirVar = dir;
     }
 
     public void setBoolVar(int bool) {
-        boolVal = bool;
+        ctx.boolVal = bool;
     }
 
-    private final Map<String, Value> variables;
-    private final ArrayList<String> enumVars;
-    private final Map<String, Integer> labels;
-    private final BufferedReader lineIn;
+    /** Contexte de l'exécution en cours (null tant que rien n'a été exécuté) **/
+    public ExecutionContext getContext() {
+        return ctx;
+    }
 
-    private int currentStatement;
+    // Variables assignées dans le script, utilisables comme direction
+    private final Set<String> enumVars;
     
     // Utility stuff -----------------------------------------------------------
 
@@ -1604,9 +2801,14 @@ public class Interpreter {
      *  wrongToken est à true si l'erreur est dûe à un faux token
      */
     public void addError(String error, String errToken, boolean wrongToken) {
+        addError(new Diagnostic(error, errToken, wrongToken));
+    }
+
+    // Ajoute une erreur localisée au log d'erreurs errMsg
+    private void addError(Diagnostic diagnostic) {
         // On passe le flag d'erreurs à vrai
         this.flagErrors = true;
-        errMsg.add(new String[]{error, errToken, wrongToken ? "w" : "r"});
+        errMsg.add(diagnostic);
     }
 
     /**
@@ -25,6 +25,7 @@ public class InterpreterMessage {
         /** Erreurs à l'exécution **/
         SYNTAX_ERR, // des erreurs de syntaxe ont été détectées
         LOOP_LIMIT, // on a dépassé le nombre maximal d'instructions exécutable
+        ANNULE, // l'exécution a été annulée de l'extérieur (cf. Annulation)
     }
 
     /* Attribut principal : type du message */
@@ -36,7 +37,7 @@ public class InterpreterMessage {
     }
 
     /* Attributs secondaires */
-    public ArrayList<String[]> errorList;
+    public ArrayList<Diagnostic> errorList;
     public String text;
     public Direction dirInst;
 }
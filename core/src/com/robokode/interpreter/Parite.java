@@ -0,0 +1,180 @@
+package com.robokode.interpreter;
+
+import com.robokode.utils.Direction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Vérifie que les optimisations et le second tier ne changent pas
+ * l'exécution des scripts. Chaque script est exécuté trois fois :
+ *  - compilé sans les passes d'optimisation (Optimizer, LoopAnalyzer) : la référence ;
+ *  - compilé normalement, interprété par la boucle de dispatch (premier tier) ;
+ *  - compilé normalement, traduit en bytecode (second tier, cf. BytecodeCompiler).
+ *
+ * Les trois suites de messages (actions et leur direction, affichages, fin ou
+ * erreurs de syntaxe) doivent être identiques. Les capteurs reçoivent les
+ * mêmes réponses à chaque exécution. Les tiers sont imposés : le seuil de
+ * promotion (robokode.tier2.seuil) n'a pas d'effet ici.
+ *
+ * Usage : Parite [script...]
+ * Sans argument, les scripts de SCRIPTS sont vérifiés. Le code de sortie vaut
+ * 1 si une différence est trouvée.
+ */
+public final class Parite {
+
+    // Nombre maximal de messages relevés par exécution
+    private static final int MESSAGES_MAX = 2000;
+
+    // Scripts vérifiés par défaut : un cas par optimisation ou comportement à préserver
+    private static final Map<String, String> SCRIPTS = new LinkedHashMap<String, String>();
+    static {
+        SCRIPTS.put("actions",
+                "deplacer(HAUTDROIT)\ndeplacer(BASGAUCHE)\nd = HAUTGAUCHE\ndeplacer(d)\n"
+              + "attaquer.tirer(BASDROIT)\nattaquer.melee(HAUTDROIT)\nrecharger()\n");
+        SCRIPTS.put("direction invalide",
+                "x = 5\nn = 0\ntantque (n < 3)\n  deplacer(x)\n  attaquer.tirer(x)\n  n = n + 1\nfintantque\n");
+        SCRIPTS.put("constantes",
+                "x = 0 - 1\nprint x\nprint \"a\" + 1\nsi (1 = 1)\n  deplacer(HAUTDROIT)\nsinon\n  deplacer(BASGAUCHE)\nfinsi\n"
+              + "si (2 < 1)\n  deplacer(BASDROIT)\nfinsi\ntantque (1 = 2)\n  print 0\nfintantque\n");
+        SCRIPTS.put("sauts",
+                "goto a\nb:\ndeplacer(HAUTDROIT)\ngoto c\na:\ngoto b\nc:\nn = 0\n"
+              + "debut:\nsi (n < 3)\n  n = n + 1\n  goto debut\nfinsi\nprint n\n");
+        SCRIPTS.put("pour imbriques",
+                "j = 0\ntantque (j < 3)\n  pour (i = 0; i < 2; i = i + 1)\n    deplacer(HAUTDROIT)\n  finpour\n  j = j + 1\nfintantque\n"
+              + "pour (i = 0; i < 3; i = i + 1)\n  pour (k = 0; k < 2; k = k + 1)\n    print i + k\n  finpour\nfinpour\n");
+        SCRIPTS.put("capteurs",
+                "pour (i = 0; estVivant(); i = i + 1)\n  print i\nfinpour\n"
+              + "d = detecterEnnemi()\nsi (d = HAUTDROIT)\n  attaquer.tirer(d)\nfinsi\n"
+              + "tantque (estVivant())\n  deplacer(BASDROIT)\nfintantque\n");
+        SCRIPTS.put("types melanges",
+                "x = 1\nx = \"a\"\nprint x + 1\nx = 2\npour (i = 0; i < 3; i = i + 1)\n  x = x + i\nfinpour\nprint x\n"
+              + "d = HAUTDROIT\nsi (d = HAUTDROIT)\n  deplacer(d)\nfinsi\nd = 3\nprint d * 2\n");
+        SCRIPTS.put("boucle infinie",
+                "deplacer(HAUTDROIT)\ny = 0\ntantque (1 = 1)\n  y = y + 1\nfintantque\n");
+        SCRIPTS.put("pour trop long",
+                "deplacer(HAUTDROIT)\npour (i = 0; i < 100000; i = i + 1)\n  x = i\nfinpour\ndeplacer(BASGAUCHE)\n");
+        SCRIPTS.put("boucle qui affiche",
+                "tantque (1 = 1)\n  print 1\nfintantque\n");
+        SCRIPTS.put("pour reecrit",
+                "pour (i = 0; i < 3; i = i + 1)\n  pour (i = 0; i < 2; i = i + 1)\n    x = 1\n  finpour\nfinpour\ndeplacer(HAUTDROIT)\n");
+        SCRIPTS.put("blocs non fermes",
+                "goto nulle\nsi (1 = 2)\n  deplacer(HAUTDROIT)\nsinon\n  deplacer(BASGAUCHE)\n");
+        SCRIPTS.put("erreurs de syntaxe",
+                "deplacer(HAUTDROI)\ngoto 5\nfinsi\n");
+    }
+
+    private Parite() { }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> scripts = new LinkedHashMap<String, String>();
+        if (args.length == 0) scripts.putAll(SCRIPTS);
+        for (String chemin : args)
+            scripts.put(chemin, new String(Files.readAllBytes(Paths.get(chemin)), StandardCharsets.UTF_8));
+
+        int differences = 0;
+        for (Map.Entry<String, String> script : scripts.entrySet()) {
+            String source = script.getValue();
+
+            Program reference = Interpreter.compileSansOptimisation(source);
+            Program tier1 = Interpreter.compile(source);
+            Program tier2 = Interpreter.compile(source);
+            reference.garderAuPremierTier();
+            tier1.garderAuPremierTier();
+            boolean promu = tier2.hasErrors() || tier2.promouvoir();
+
+            List<String> attendu = executer(reference);
+            boolean identique = comparer(script.getKey(), "tier 1", attendu, executer(tier1));
+            identique &= comparer(script.getKey(), "tier 2", attendu, executer(tier2));
+
+            if (identique)
+                System.out.println("OK " + script.getKey() + " (" + attendu.size() + " messages"
+                        + (promu ? "" : ", non traduit en bytecode") + ")");
+            else
+                differences++;
+        }
+
+        System.out.println(scripts.size() + " scripts, " + differences + " différence(s)");
+        if (differences > 0) System.exit(1);
+    }
+
+    // Compare deux suites de messages, et signale le premier écart
+    private static boolean comparer(String script, String tier, List<String> attendu, List<String> obtenu) {
+        for (int i = 0; i < Math.max(attendu.size(), obtenu.size()); i++) {
+            String a = (i < attendu.size()) ? attendu.get(i) : "(rien)";
+            String o = (i < obtenu.size()) ? obtenu.get(i) : "(rien)";
+            if (!a.equals(o)) {
+                System.out.println("DIFFERENCE " + script + " (" + tier + "), message " + i
+                        + " : attendu " + a + ", obtenu " + o);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Exécute un programme jusqu'à sa fin, en répondant aux capteurs :
+     * l'ennemi est alternativement en HAUTDROIT et hors de vue, et reste
+     * vivant pendant les cinq premières interrogations.
+     */
+    private static List<String> executer(Program program) throws IOException {
+        List<String> messages = new ArrayList<String>();
+
+        // Les affichages du script sont relevés entre les messages
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(sortie, true, StandardCharsets.UTF_8.name()));
+        try {
+            Interpreter interpreter = new Interpreter();
+            InterpreterMessage msg = interpreter.interpret(program);
+            int reponses = 0;
+
+            for (int n = 0; n < MESSAGES_MAX; n++) {
+                relever(sortie, messages);
+                messages.add(decrire(msg));
+
+                if (msg.type == InterpreterMessage.TypeMessage.END_PRG
+                        || msg.type == InterpreterMessage.TypeMessage.LOOP_LIMIT
+                        || msg.type == InterpreterMessage.TypeMessage.SYNTAX_ERR)
+                    break;
+                if (msg.type == InterpreterMessage.TypeMessage.DETECTERENNEMI)
+                    interpreter.setDirVar((reponses++ % 2 == 0) ? Direction.HD : null);
+                if (msg.type == InterpreterMessage.TypeMessage.ESTVIVANT)
+                    interpreter.setBoolVar((reponses++ < 5) ? 1 : 0);
+
+                msg = interpreter.restart();
+            }
+        } catch (RuntimeException ex) {
+            // Erreur du script à l'exécution : elle doit être la même dans chaque tier
+            relever(sortie, messages);
+            messages.add("exception " + ex.getClass().getName());
+        } finally {
+            System.setOut(console);
+        }
+        return messages;
+    }
+
+    private static void relever(ByteArrayOutputStream sortie, List<String> messages) throws IOException {
+        if (sortie.size() == 0) return;
+        // Une direction s'affiche avec son hash d'objet (Object.toString) : on ne le compare pas
+        for (String ligne : sortie.toString(StandardCharsets.UTF_8.name()).split("\n"))
+            messages.add("print " + ligne.replaceAll("@[0-9a-f]+$", ""));
+        sortie.reset();
+    }
+
+    private static String decrire(InterpreterMessage msg) {
+        StringBuilder sb = new StringBuilder(msg.type.toString());
+        if (msg.dirInst != null) sb.append(' ').append(msg.dirInst.name());
+        if (msg.errorList != null)
+            for (Diagnostic d : msg.errorList) sb.append(" [").append(d.message).append('|').append(d.token).append(']');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,148 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.InterpreterMessage.TypeMessage;
+
+/**
+ * Profil d'exécution d'un programme : nombre d'exécutions et temps passé dans
+ * chaque statement, et messages envoyés au contrôleur depuis chacun d'eux.
+ *
+ * Le profilage est optionnel (cf. Interpreter.setProfilage) : sans profil, la
+ * boucle de dispatch ne paie qu'un test par instruction. Un programme profilé
+ * reste interprété, le second tier n'est jamais instrumenté.
+ *
+ * Le temps d'une instruction court jusqu'au début de la suivante, ou jusqu'à
+ * l'interruption de l'exécution : les pauses (capteurs, actions traitées par
+ * le contrôleur) ne sont pas comptées. Un profil suit les exécutions d'un seul
+ * thread à la fois.
+ */
+public final class Profile {
+    private static final TypeMessage[] TYPES = TypeMessage.values();
+
+    private final Program program;
+
+    // Compteurs de chaque instruction du code, et messages de chaque statement
+    private final long[] executions, nanos;
+    private final int[][] messages;
+
+    // Instruction en cours et début de son exécution (-1 : exécution interrompue)
+    private int courante = -1;
+    private long debut;
+
+    public Profile(Program program) {
+        this.program = program;
+
+        int nbInstructions = program.code.length / Interpreter.INSTR_WIDTH;
+        executions = new long[nbInstructions];
+        nanos = new long[nbInstructions];
+        messages = new int[program.statements.length][TYPES.length];
+    }
+
+    /* Instrumentation (boucle de dispatch)
+     * =================================== */
+
+    // Début d'une instruction : l'instruction précédente se termine
+    void instruction(int instruction) {
+        long maintenant = System.nanoTime();
+        if (courante >= 0) nanos[courante] += maintenant - debut;
+
+        executions[instruction]++;
+        courante = instruction;     debut = maintenant;
+    }
+
+    // Interruption de l'exécution : le message est attribué à la dernière instruction exécutée
+    void interruption(TypeMessage type) {
+        if (courante < 0) return;
+
+        nanos[courante] += System.nanoTime() - debut;
+        messages[program.statementDe(courante)][type.ordinal()]++;
+        courante = -1;
+    }
+
+    /* Accès par statement
+     * =================================== */
+
+    /** Programme profilé **/
+    public Program getProgram() {
+        return program;
+    }
+
+    public int getNbStatements() {
+        return program.statements.length;
+    }
+
+    /** Nombre d'exécutions de chaque statement (ses interrogations de capteurs ne comptent pas) **/
+    public long[] executionsParStatement() {
+        long[] parStatement = new long[getNbStatements()];
+        for (int i = 0; i < executions.length; i++)
+            if (!Program.capteur(program.code, i)) parStatement[program.statementDe(i)] += executions[i];
+        return parStatement;
+    }
+
+    /** Temps passé dans chaque statement et ses capteurs, en nanosecondes **/
+    public long[] nanosParStatement() {
+        long[] parStatement = new long[getNbStatements()];
+        for (int i = 0; i < nanos.length; i++) parStatement[program.statementDe(i)] += nanos[i];
+        return parStatement;
+    }
+
+    /** Nombre de messages de ce type envoyés au contrôleur depuis le statement **/
+    public int getMessages(int statement, TypeMessage type) {
+        return messages[statement][type.ordinal()];
+    }
+
+    /** Nom du type du statement (ex : TantQue, Deplacer) **/
+    public String getType(int statement) {
+        return program.statements[statement].getClass().getSimpleName().replace("Statement", "");
+    }
+
+    /* Agrégat par ligne du script
+     * =================================== */
+
+    /** Nombre de lignes couvertes par le programme **/
+    public int getNbLignes() {
+        int nb = 0;
+        for (int ligne : program.lignes) nb = Math.max(nb, ligne + 1);
+        return nb;
+    }
+
+    /** Nombre d'exécutions de chaque ligne : celles de son statement le plus exécuté **/
+    public long[] executionsParLigne() {
+        long[] parStatement = executionsParStatement();
+        long[] parLigne = new long[getNbLignes()];
+        for (int st = 0; st < parStatement.length; st++) {
+            int ligne = program.lignes[st];
+            parLigne[ligne] = Math.max(parLigne[ligne], parStatement[st]);
+        }
+        return parLigne;
+    }
+
+    /** Temps passé dans chaque ligne, en nanosecondes **/
+    public long[] nanosParLigne() {
+        long[] parLigne = new long[getNbLignes()];
+        for (int i = 0; i < nanos.length; i++) parLigne[program.lignes[program.statementDe(i)]] += nanos[i];
+        return parLigne;
+    }
+
+    /** Nombre de messages de ce type envoyés depuis chaque ligne **/
+    public int[] messagesParLigne(TypeMessage type) {
+        int[] parLigne = new int[getNbLignes()];
+        for (int st = 0; st < getNbStatements(); st++) parLigne[program.lignes[st]] += messages[st][type.ordinal()];
+        return parLigne;
+    }
+
+    /**
+     * Ajoute à ce profil les compteurs d'un autre profil du même programme
+     * (ex : plusieurs exécutions d'un même script).
+     */
+    public void ajouter(Profile autre) {
+        if (autre.program != program)
+            throw new IllegalArgumentException("Les profils ne portent pas sur le même programme");
+
+        for (int i = 0; i < executions.length; i++) {
+            executions[i] += autre.executions[i];
+            nanos[i] += autre.nanos[i];
+        }
+        for (int st = 0; st < messages.length; st++)
+            for (int t = 0; t < TYPES.length; t++) messages[st][t] += autre.messages[st][t];
+    }
+}
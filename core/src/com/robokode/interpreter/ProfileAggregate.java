@@ -0,0 +1,96 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.InterpreterMessage.TypeMessage;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrégat de profils d'exécution de nombreux scripts : les scripts étant tous
+ * différents, les compteurs sont regroupés par type de statement (TantQue,
+ * Deplacer...). Permet de repérer sur un grand nombre de soumissions les
+ * constructions où l'exécution s'attarde.
+ *
+ * Les profils peuvent être ajoutés depuis plusieurs threads à la fois.
+ */
+public final class ProfileAggregate {
+    private static final TypeMessage[] TYPES = TypeMessage.values();
+
+    // Compteurs d'un type de statement
+    private static final class Compteurs {
+        final LongAdder statements = new LongAdder();
+        final LongAdder executions = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder[] messages = new LongAdder[TYPES.length];
+
+        Compteurs() {
+            for (int t = 0; t < messages.length; t++) messages[t] = new LongAdder();
+        }
+    }
+
+    private final Map<String, Compteurs> parType = new ConcurrentHashMap<>();
+    private final LongAdder profils = new LongAdder();
+
+    /** Ajoute les compteurs d'un profil à l'agrégat **/
+    public void ajouter(Profile profil) {
+        long[] executions = profil.executionsParStatement();
+        long[] nanos = profil.nanosParStatement();
+
+        for (int st = 0; st < profil.getNbStatements(); st++) {
+            Compteurs c = parType.computeIfAbsent(profil.getType(st), type -> new Compteurs());
+            c.statements.increment();
+            c.executions.add(executions[st]);
+            c.nanos.add(nanos[st]);
+            for (int t = 0; t < TYPES.length; t++) c.messages[t].add(profil.getMessages(st, TYPES[t]));
+        }
+        profils.increment();
+    }
+
+    /** Nombre de profils agrégés **/
+    public long getNbProfils() {
+        return profils.sum();
+    }
+
+    /** Types de statements rencontrés **/
+    public Iterable<String> getTypes() {
+        return new TreeMap<>(parType).keySet();
+    }
+
+    /** Nombre de statements de ce type dans les scripts agrégés **/
+    public long getStatements(String type) {
+        Compteurs c = parType.get(type);
+        return (c != null) ? c.statements.sum() : 0;
+    }
+
+    /** Nombre total d'exécutions des statements de ce type **/
+    public long getExecutions(String type) {
+        Compteurs c = parType.get(type);
+        return (c != null) ? c.executions.sum() : 0;
+    }
+
+    /** Temps total passé dans les statements de ce type, en nanosecondes **/
+    public long getNanos(String type) {
+        Compteurs c = parType.get(type);
+        return (c != null) ? c.nanos.sum() : 0;
+    }
+
+    /** Nombre de messages de ce type envoyés depuis les statements d'un type **/
+    public long getMessages(String type, TypeMessage message) {
+        Compteurs c = parType.get(type);
+        return (c != null) ? c.messages[message.ordinal()].sum() : 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("type;statements;executions;nanos");
+        for (TypeMessage t : TYPES) sb.append(';').append(t);
+        for (String type : getTypes()) {
+            sb.append('\n').append(type).append(';').append(getStatements(type))
+                    .append(';').append(getExecutions(type)).append(';').append(getNanos(type));
+            for (TypeMessage t : TYPES) sb.append(';').append(getMessages(type, t));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,153 @@
+package com.robokode.interpreter;
+
+import com.robokode.interpreter.Interpreter.Expression;
+import com.robokode.interpreter.Interpreter.Statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Programme compilé : résultat du parsing et de la compilation d'un script.
+ * Il ne contient aucun état d'exécution (variables, compteur ordinal, pause) :
+ * ceux-ci sont portés par un ExecutionContext. Le programme n'est plus modifié
+ * une fois construit ; ses champs final en assurent la publication, il peut
+ * donc être exécuté par plusieurs threads à la fois sans nouveau parsing.
+ */
+public final class Program {
+
+    Program(int[] code, int[] source, int[][] origines, Statement[] statements, Expression[] conditions,
+            int[] operateurs, int[] lignes, int[] tours, int[][] certaines, int nbSlots, int nbCapteurs,
+            List<Diagnostic> errors) {
+        this.code = code;
+        this.source = source;
+        this.origines = origines;
+        this.statements = statements;
+        this.conditions = conditions;
+        this.operateurs = operateurs;
+        this.lignes = lignes;
+        this.tours = tours;
+        this.certaines = certaines;
+        this.nbSlots = nbSlots;
+        this.nbCapteurs = nbCapteurs;
+        this.errors = Collections.unmodifiableList(new ArrayList<Diagnostic>(errors));
+
+        // Chaque statement donne une instruction précédée de ses capteurs : on les numérote dans le code d'origine
+        int[] statementsSource = new int[source.length / Interpreter.INSTR_WIDTH];
+        for (int i = 0, st = 0; i < statementsSource.length; i++) {
+            statementsSource[i] = st;
+            if (!capteur(source, i)) st++;
+        }
+        this.statementsCode = new int[code.length / Interpreter.INSTR_WIDTH];
+        for (int i = 0; i < statementsCode.length; i++) statementsCode[i] = statementsSource[origines[i][0]];
+    }
+
+    /** Renvoie vrai si des erreurs de syntaxe ont été détectées **/
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    /** Erreurs de syntaxe, localisées dans le script **/
+    public List<Diagnostic> getErrors() {
+        return errors;
+    }
+
+    /** Vrai si le programme a été promu au second tier (bytecode JVM) **/
+    public boolean isNatif() {
+        return natif != null;
+    }
+
+    /**
+     * Décompte une nouvelle exécution du programme. Dès que le seuil du
+     * second tier est atteint, le programme est traduit en bytecode : une
+     * seule fois, par le premier thread qui passe le seuil. En cas d'échec on
+     * reste à l'interprétation.
+     */
+    void compterExecution() {
+        if (promu.get()) return;
+        if (executions.incrementAndGet() >= BytecodeCompiler.getSeuil() && !hasErrors()) promouvoir();
+    }
+
+    /**
+     * Promeut le programme au second tier sans attendre le seuil (cf. Parite).
+     *
+     * @return Vrai si le programme s'exécute en bytecode.
+     */
+    boolean promouvoir() {
+        if (promu.compareAndSet(false, true)) natif = BytecodeCompiler.compiler(this);
+        return natif != null;
+    }
+
+    // Garde le programme au premier tier, quel que soit le seuil (cf. Parite)
+    void garderAuPremierTier() {
+        promu.set(true);
+    }
+
+    /**
+     * Coût de chaque instruction selon un budget. Le dernier tableau calculé
+     * est conservé : les exécutions d'une même carte partagent leur budget.
+     */
+    long[] couts(Budget budget) {
+        Object[] cache = coutsCache;
+        if (cache != null && cache[0] == budget) return (long[]) cache[1];
+
+        long[] couts = budget.couts(this);
+        coutsCache = new Object[]{ budget, couts };
+        return couts;
+    }
+
+    /** Ligne du script (à partir de 0) où débute un statement **/
+    public int getLigne(int statement) {
+        return lignes[statement];
+    }
+
+    /** Statement dont provient une instruction du code **/
+    int statementDe(int instruction) {
+        return statementsCode[instruction];
+    }
+
+    // Vrai si l'instruction interroge un capteur pour le statement qui la suit
+    static boolean capteur(int[] code, int instruction) {
+        int op = code[instruction * Interpreter.INSTR_WIDTH];
+        return op == Interpreter.OP_DETECTER || op == Interpreter.OP_ESTVIVANT;
+    }
+
+    /** Nombre d'instructions du code compilé **/
+    public int getNbInstructions() {
+        return statements.length;
+    }
+
+    // Tableau d'opcodes et pools des statements\conditions référencés
+    final int[] code;
+    final Statement[] statements;
+    final Expression[] conditions;
+
+    // Code avant optimisation, et instructions de celui-ci dont chaque instruction paie le coût
+    final int[] source;
+    final int[][] origines;
+
+    // Ligne de chaque statement, et statement de chaque instruction du code (cf. Profile)
+    final int[] lignes;
+    private final int[] statementsCode;
+
+    // Nombre d'opérateurs des expressions de chaque statement (cf. Budget)
+    final int[] operateurs;
+    private volatile Object[] coutsCache;
+
+    // Nombre de tours et instructions de chaque tour des pour bornés (cf. LoopAnalyzer)
+    final int[] tours;
+    final int[][] certaines;
+
+    // Taille de la frame des variables, et de celle des capteurs
+    final int nbSlots;
+    final int nbCapteurs;
+
+    // Nombre d'exécutions lancées, vrai dès que la promotion a été tentée, et code généré une fois le programme promu
+    private final AtomicInteger executions = new AtomicInteger();
+    private final AtomicBoolean promu = new AtomicBoolean();
+    volatile CompiledCode natif;
+
+    private final List<Diagnostic> errors;
+}
@@ -0,0 +1,137 @@
+package com.robokode.interpreter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classe singleton conservant les derniers programmes compilés. Un script
+ * validé plusieurs fois sans modification (ou soumis à l'identique par
+ * plusieurs joueurs) n'est ainsi tokenizé et parsé qu'une seule fois.
+ *
+ * Les entrées sont indexées par un hash FNV-1a 64 bits de la source
+ * normalisée. Le programme est toutefois compilé sur la source d'origine,
+ * conservée avec lui : les positions de ses erreurs sont celles de ce texte,
+ * et il n'est servi qu'à une source identique. Le cache est borné et évince
+ * l'entrée la moins récemment utilisée.
+ */
+public class ProgramCache {
+
+    // Nombre maximal de programmes conservés
+    public static final int CAPACITE = 64;
+
+    // Entrée du cache : la source d'origine et son programme compilé
+    private static class Entree {
+        Entree(String source, Program program) {
+            this.source = source;
+            this.program = program;
+        }
+
+        final String source;
+        final Program program;
+    }
+
+    // Map LRU : l'ordre d'accès permet d'évincer l'entrée la plus ancienne
+    private final LinkedHashMap<Long, Entree> entrees;
+
+    // Statistiques d'utilisation
+    private long hits, misses;
+
+    // Constructeur principal
+    private ProgramCache() {
+        entrees = new LinkedHashMap<Long, Entree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entree> eldest) {
+                return size() > CAPACITE;
+            }
+        };
+    }
+
+    /**
+     * Renvoie le programme compilé correspondant à la source, en le compilant
+     * s'il n'est pas déjà en cache.
+     *
+     * @param  source Le script du joueur.
+     * @return        Le programme compilé (éventuellement avec erreurs).
+     */
+    public Program obtenir(String source) {
+        long cle = hash(normaliser(source));
+
+        synchronized (this) {
+            Entree entree = entrees.get(cle);
+            if (entree != null && entree.source.equals(source)) {
+                hits++;
+                return entree.program;
+            }
+            misses++;
+        }
+
+        // La compilation se fait hors verrou : deux compilations concurrentes
+        // d'une même source donnent des programmes équivalents
+        Program program = Interpreter.compile(source);
+
+        synchronized (this) {
+            entrees.put(cle, new Entree(source, program));
+        }
+        return program;
+    }
+
+    /** Vide le cache et remet les statistiques à zéro **/
+    public synchronized void vider() {
+        entrees.clear();
+        hits = 0;   misses = 0;
+    }
+
+    /** Statistiques **/
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized int getTaille() { return entrees.size(); }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return (total == 0) ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ProgramCache[taille=" + entrees.size() + "/" + CAPACITE
+                + ", hits=" + hits + ", misses=" + misses
+                + ", hitRate=" + String.format("%.2f", getHitRate()) + "]";
+    }
+
+    /**
+     * Normalise la source pour le calcul de la clé : retours chariot (ignorés
+     * par le tokenizer) et blancs de fin de fichier supprimés. Le texte obtenu
+     * n'est jamais compilé : retirer un \r décale toutes les positions qui le
+     * suivent.
+     */
+    static String normaliser(String source) {
+        String normalisee = source.indexOf('\r') < 0 ? source : source.replace("\r", "");
+
+        int fin = normalisee.length();
+        while (fin > 0 && Character.isWhitespace(normalisee.charAt(fin - 1))) fin--;
+
+        return normalisee.substring(0, fin);
+    }
+
+    // Hash FNV-1a 64 bits
+    static long hash(String source) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < source.length(); i++) {
+            h ^= source.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Instance unique
+    private static ProgramCache INSTANCE = null;
+
+    // Point d'accès
+    public static synchronized ProgramCache Instance()
+    {
+        if (INSTANCE == null)
+        { 	INSTANCE = new ProgramCache();
+        }
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,192 @@
+package com.robokode.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Flux de tokens produit par le scanner. Les tokens ne sont pas des objets :
+ * chacun est un enregistrement (type, début, longueur, ligne, colonne) réparti
+ * dans des tableaux primitifs, qui référence directement le texte source. Le
+ * texte d'un token n'est matérialisé en String qu'à la demande du parseur.
+ *
+ * Les lignes et colonnes sont comptées à partir de 0.
+ */
+public final class TokenStream {
+
+    /**
+     * This defines the different states the tokenizer can be in while it's
+     * scanning through the source code. Tokenizers are state machines, which
+     * means the only data they need to store is where they are in the source
+     * code and this one "state" or mode value.
+     */
+    private enum TokenizeState {
+        DEFAULT, WORD, NUMBER, STRING, COMMENT
+    }
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    // Texte source : partagé par tous les tokens
+    private final char[] source;
+
+    // Enregistrements des tokens
+    private byte[] types;
+    private int[] starts, lengths, lines, columns;
+    private int size;
+
+    private TokenStream(char[] source) {
+        this.source = source;
+
+        // Estimation de départ : un token pour 4 caractères
+        int capacity = Math.max(16, source.length / 4);
+        types = new byte[capacity];
+        starts = new int[capacity];     lengths = new int[capacity];
+        lines = new int[capacity];      columns = new int[capacity];
+    }
+
+    /**
+     * This function takes a script as a string of characters and chunks it into
+     * a sequence of tokens. Each token is a meaningful unit of program, like a
+     * variable name, a number, a string, or an operator.
+     *
+     * Le scanner parcourt le source une seule fois : un token est délimité par
+     * son début et sa fin, sans concaténation de caractères.
+     *
+     * @param  source Le script à découper.
+     * @return        Le flux de tokens.
+     */
+    public static TokenStream scan(String source) {
+        TokenStream tokens = new TokenStream(source.toCharArray());
+        char[] src = tokens.source;
+
+        TokenizeState state = TokenizeState.DEFAULT;
+        int start = 0, startLine = 0, startCol = 0;
+        int line = 0, lineStart = 0;
+
+        // Scan through the code one character at a time, building up the list
+        // of tokens.
+        for (int i = 0; i < src.length; i++) {
+            char c = src[i];
+            switch (state) {
+            case DEFAULT:
+                TokenType single = singleCharType(c);
+                if (single != null) {
+                    tokens.add(single, i, 1, line, i - lineStart);
+                } else if (Character.isLetter(c)) {
+                    start = i;  startLine = line;   startCol = i - lineStart;
+                    state = TokenizeState.WORD;
+                } else if (Character.isDigit(c)) {
+                    start = i;  startLine = line;   startCol = i - lineStart;
+                    state = TokenizeState.NUMBER;
+                } else if (c == '"') {
+                    start = i + 1;  startLine = line;   startCol = i + 1 - lineStart;
+                    state = TokenizeState.STRING;
+                } else if (c == '#') {
+                    state = TokenizeState.COMMENT;
+                }
+                break;
+
+            case WORD:
+                if (Character.isLetterOrDigit(c)) {
+                    break;
+                } else if (c == ':') {
+                    tokens.add(TokenType.LABEL, start, i - start, startLine, startCol);
+                    state = TokenizeState.DEFAULT;
+                } else {
+                    tokens.add(TokenType.keyword(src, start, i - start), start, i - start, startLine, startCol);
+                    state = TokenizeState.DEFAULT;
+                    i--; // Reprocess this character in the default state.
+                    continue;
+                }
+                break;
+
+            case NUMBER:
+                // HACK: Negative numbers and floating points aren't supported.
+                // To get a negative number, just do 0 - <your number>.
+                // To get a floating point, divide.
+                if (!Character.isDigit(c)) {
+                    tokens.add(TokenType.NUMBER, start, i - start, startLine, startCol);
+                    state = TokenizeState.DEFAULT;
+                    i--; // Reprocess this character in the default state.
+                    continue;
+                }
+                break;
+
+            case STRING:
+                if (c == '"') {
+                    tokens.add(TokenType.STRING, start, i - start, startLine, startCol);
+                    state = TokenizeState.DEFAULT;
+                }
+                break;
+
+            case COMMENT:
+                if (c == '\n') {
+                    state = TokenizeState.DEFAULT;
+                }
+                break;
+            }
+
+            // On tient à jour la position ligne\colonne
+            if (c == '\n') {
+                line++;     lineStart = i + 1;
+            }
+        }
+
+        // HACK: Silently ignore any in-progress token when we run out of
+        // characters. This means that, for example, if a script has a string
+        // that's missing the closing ", it will just ditch it.
+        return tokens;
+    }
+
+    // Many tokens are a single character, like operators and ().
+    private static TokenType singleCharType(char c) {
+        switch (c) {
+            case '\n': return TokenType.LINE;
+            case '=': return TokenType.EQUALS;
+            case '+': case '-': case '*': case '/':
+            case '<': case '>': case '!':
+                return TokenType.OPERATOR;
+            case '(': return TokenType.LEFT_PAREN;
+            case ')': return TokenType.RIGHT_PAREN;
+            default: return null;
+        }
+    }
+
+    // Ajoute un enregistrement, en agrandissant les tableaux si besoin
+    private void add(TokenType type, int start, int length, int line, int column) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);      lengths = Arrays.copyOf(lengths, capacity);
+            lines = Arrays.copyOf(lines, capacity);        columns = Arrays.copyOf(columns, capacity);
+        }
+
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;   lengths[size] = length;
+        lines[size] = line;     columns[size] = column;
+        size++;
+    }
+
+    /* Accès aux tokens
+     * =================================== */
+
+    public int size() { return size; }
+
+    // Au-delà du dernier token, le flux renvoie EOF
+    public TokenType type(int index) {
+        return (index < size) ? TYPES[types[index]] : TokenType.EOF;
+    }
+
+    public int start(int index) { return (index < size) ? starts[index] : source.length; }
+    public int length(int index) { return (index < size) ? lengths[index] : 0; }
+    public int line(int index) { return (index < size) ? lines[index] : (size > 0 ? lines[size - 1] : 0); }
+    public int column(int index) { return (index < size) ? columns[index] : 0; }
+
+    /** Premier caractère du token (ex : le symbole d'un opérateur) **/
+    public char firstChar(int index) {
+        return source[starts[index]];
+    }
+
+    /** Matérialise le texte du token : seule opération qui alloue une chaîne **/
+    public String text(int index) {
+        return (index < size) ? new String(source, starts[index], lengths[index]) : "";
+    }
+}
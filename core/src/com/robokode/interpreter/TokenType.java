@@ -0,0 +1,128 @@
+package com.robokode.interpreter;
+
+import com.robokode.utils.Direction;
+
+/**
+ * This defines the different kinds of tokens or meaningful chunks of code
+ * that the parser knows how to consume. These let us distinguish, for
+ * example, between a string "foo" and a variable named "foo".
+ *
+ * Chaque mot-clé du langage possède son propre type : le parseur n'a jamais
+ * à comparer de chaînes pour reconnaître une instruction.
+ */
+public enum TokenType {
+    WORD("Un mot (variable/instruction)"),
+    NUMBER("Un nombre"),
+    STRING("Une chaîne de caractères"),
+    LABEL("Un label"),
+    LINE("Saut de ligne"),
+    EQUALS("Signe égal '='"),
+    OPERATOR("Opérateur. ex : + - x "),
+    LEFT_PAREN("Parenthèse gauche '('"),
+    RIGHT_PAREN ("Parenthèse droite ')'"),
+    EOF ("Fin du fichier"),
+
+    /** Mots-clés : instructions **/
+    PRINT ("print", null),
+    INPUT ("input", null),
+    GOTO ("goto", null),
+    DEPLACER ("deplacer", null),
+    ATTAQUER ("attaquer", null),
+    TIRER ("tirer", null),
+    MELEE ("melee", null),
+    RECHARGER ("recharger", null),
+
+    /** Mots-clés : blocs **/
+    POUR ("pour", null),
+    FINPOUR ("finpour", null),
+    TANTQUE ("tantque", null),
+    FINTANTQUE ("fintantque", null),
+    SI ("si", null),
+    SINON ("sinon", null),
+    FINSI ("finsi", null),
+
+    /** Mots-clés : capteurs **/
+    DETECTERENNEMI ("detecterEnnemi", null),
+    ESTVIVANT ("estVivant", null),
+
+    /** Mots-clés : directions **/
+    BASGAUCHE ("BASGAUCHE", Direction.BG),
+    BASDROIT ("BASDROIT", Direction.BD),
+    HAUTDROIT ("HAUTDROIT", Direction.HD),
+    HAUTGAUCHE ("HAUTGAUCHE", Direction.HG);
+
+    // Constructeur des types génériques
+    TokenType(String texte) {
+        this.texteDesc = texte;
+        this.motCle = null;
+        this.direction = null;
+    }
+
+    // Constructeur des mots-clés
+    TokenType(String motCle, Direction direction) {
+        this.texteDesc = "Mot-clé '" + motCle + "'";
+        this.motCle = motCle;
+        this.direction = direction;
+    }
+
+    private final String texteDesc;
+    private final String motCle;
+    private final Direction direction;
+
+    @Override
+    public String toString() {
+        return texteDesc;
+    }
+
+    /** Renvoie vrai si le token est un mot : identifiant ou mot-clé **/
+    public boolean isWord() {
+        return this == WORD || motCle != null;
+    }
+
+    /** Renvoie la direction associée à un mot-clé de direction, null sinon **/
+    public Direction getDirection() {
+        return direction;
+    }
+
+    // Table des mots-clés indexée par leur premier caractère
+    private static final TokenType[][] KEYWORDS = new TokenType[128][];
+
+    static {
+        for (TokenType type : values()) {
+            if (type.motCle == null) continue;
+
+            char first = type.motCle.charAt(0);
+            TokenType[] bucket = KEYWORDS[first];
+            if (bucket == null) {
+                bucket = new TokenType[] { type };
+            } else {
+                bucket = java.util.Arrays.copyOf(bucket, bucket.length + 1);
+                bucket[bucket.length - 1] = type;
+            }
+            KEYWORDS[first] = bucket;
+        }
+    }
+
+    /**
+     * Reconnaît un mot-clé directement dans le tableau source, sans créer de chaîne.
+     *
+     * @param  source Le texte source.
+     * @param  start  Début du mot.
+     * @param  length Longueur du mot.
+     * @return        Le type du mot-clé, ou WORD si le mot n'en est pas un.
+     */
+    static TokenType keyword(char[] source, int start, int length) {
+        char first = source[start];
+        if (first >= KEYWORDS.length || KEYWORDS[first] == null) return WORD;
+
+        for (TokenType type : KEYWORDS[first]) {
+            if (type.motCle.length() != length) continue;
+
+            int i = 1;
+            while (i < length && type.motCle.charAt(i) == source[start + i]) i++;
+            if (i == length) return type;
+        }
+
+        return WORD;
+    }
+}
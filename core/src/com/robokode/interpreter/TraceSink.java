@@ -0,0 +1,29 @@
+package com.robokode.interpreter;
+
+import com.robokode.utils.Direction;
+
+/**
+ * Destinataire de la trace d'une exécution : l'interpréteur lui signale chaque
+ * statement exécuté et chaque valeur de capteur obtenue, dans l'ordre. Une
+ * exécution tracée reste interprétée, le second tier n'est jamais instrumenté.
+ */
+public interface TraceSink {
+    /**
+     * Un statement va être exécuté.
+     *
+     * @param statement Index du statement dans le programme.
+     */
+    void statement(int statement);
+
+    /**
+     * Résultat d'un capteur detecterEnnemi().
+     *
+     * @param dir La direction de l'ennemi, null s'il n'est pas en ligne de vue.
+     */
+    void detecterEnnemi(Direction dir);
+
+    /**
+     * Résultat d'un capteur estVivant().
+     */
+    void estVivant(boolean vivant);
+}
@@ -0,0 +1,22 @@
+package com.robokode.interpreter;
+
+import com.robokode.utils.Direction;
+
+/**
+ * Accès de l'interpréteur à l'état du monde. Quand une implémentation est
+ * fournie, les capteurs detecterEnnemi() et estVivant() sont résolus par un
+ * simple appel pendant l'exécution, sans interrompre le script. Seules les
+ * actions (deplacer, tirer, melee, recharger) rendent alors la main au
+ * contrôleur.
+ */
+public interface WorldQuery {
+    /**
+     * @return La direction de l'ennemi s'il est en ligne de vue, null sinon.
+     */
+    Direction detecterEnnemi();
+
+    /**
+     * @return Vrai si l'adversaire du joueur est vivant.
+     */
+    boolean estVivant();
+}
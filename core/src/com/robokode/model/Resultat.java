@@ -0,0 +1,64 @@
+package com.robokode.model;
+
+import com.robokode.game.mvc.Action;
+import com.robokode.interpreter.Diagnostic;
+import com.robokode.interpreter.InterpreterMessage;
+import com.robokode.interpreter.Profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat de l'exécution d'un script sur une carte (cf. Simulation) : issue
+ * de la partie, actions à jouer dans la vue et événements à signaler au joueur.
+ */
+public class Resultat {
+
+    // Issue de l'exécution
+    public enum Issue {
+        ERREUR_SYNTAXE,  // le script n'a pas pu être compilé : cf. erreurs
+        GAGNE,           // l'objectif du niveau est atteint
+        TERMINE,         // le script s'est terminé sans atteindre l'objectif
+        BOUCLE_INFINIE,  // le budget d'exécution de la carte est épuisé
+        ANNULE           // l'exécution a été annulée avant la fin (cf. Annulation)
+    }
+
+    // Evénements à signaler au joueur, dans l'ordre où ils se produisent
+    public enum Evenement {
+        BLOQUE("Ton robot est bloqué par un obstacle !"),
+        DIRECTION_INVALIDE("Direction de déplacement invalide !"),
+        ATTAQUE_INVALIDE("Direction d'attaque invalide !"),
+        AUCUN_ENNEMI("Aucun ennemi pour l'instant !"),
+        BOUCLE_INFINIE("Ton programme tourne en rond..."),
+        TERMINE("Ton robot a exécuté toutes tes instructions !");
+
+        public final String texte;
+
+        Evenement(String texte) { this.texte = texte; }
+    }
+
+    public Issue issue;
+
+    // Actions à transmettre à la vue, dans l'ordre
+    public final ArrayList<Action> actions = new ArrayList<>();
+    public final List<Evenement> evenements = new ArrayList<>();
+
+    // Erreurs de syntaxe (issue ERREUR_SYNTAXE)
+    public List<Diagnostic> erreurs;
+
+    // Dernier message de l'interpréteur
+    public InterpreterMessage.TypeMessage dernierMessage;
+
+    // Etoiles gagnées (issue GAGNE), budget consommé par le script
+    public int etoiles;
+    public long consommation;
+
+    // Profil de l'exécution (profilage activé)
+    public Profile profil;
+
+    @Override
+    public String toString() {
+        return issue + " : " + actions.size() + " actions, consommation " + consommation
+                + ((issue == Issue.GAGNE) ? ", " + etoiles + " étoiles" : "");
+    }
+}
@@ -0,0 +1,403 @@
+package com.robokode.model;
+
+import com.robokode.game.mvc.Action;
+import com.robokode.interpreter.Annulation;
+import com.robokode.interpreter.Interpreter;
+import com.robokode.interpreter.InterpreterMessage;
+import com.robokode.interpreter.TraceSink;
+import com.robokode.interpreter.WorldQuery;
+import com.robokode.model.Resultat.Evenement;
+import com.robokode.model.Resultat.Issue;
+import com.robokode.utils.BulleType;
+import com.robokode.utils.Direction;
+import com.robokode.utils.maps.MapInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Logique de jeu d'un niveau tutoriel, sans interface : on charge une carte,
+ * on exécute un script, on obtient l'issue de la partie et les actions à
+ * jouer. Le contrôleur du jeu en est un client parmi d'autres (correction
+ * automatique, replay...).
+ *
+ * Une simulation n'est pas partagée entre threads : chaque thread crée la
+ * sienne, les cartes (MapInfo) pouvant être communes.
+ */
+public class Simulation {
+
+    // Robots de la partie
+    private enum Cible {
+        ROBOT_JOUEUR, ROBOT_ENNEMI, TOURELLE
+    }
+
+    private final HashMap<Cible, Robot> robots = new HashMap<>();
+    private final Grille grille = new Grille();
+    private final MapInfo mapI;
+
+    // Options des prochaines exécutions
+    private boolean profilage;
+    private TraceSink trace;
+
+    // Dernière direction du robot ennemi (mode TUTO_MULTI)
+    private Direction lastDir;
+
+    public Simulation(MapInfo mapI) {
+        if (mapI.typeMap == MapInfo.MapType.MULTI)
+            throw new IllegalArgumentException("Simulation : seules les cartes tutoriel sont gérées");
+        this.mapI = mapI;
+
+        // On place les obstacles et les barrières sur la grille
+        grille.setObstacles(mapI.obstacles);
+        grille.setBarrieres(mapI.barrieres);
+
+        reinitialiser();
+    }
+
+    /* Options
+     * =================================== */
+
+    // Profilage des prochaines exécutions (cf. Resultat.profil)
+    public void setProfilage(boolean profilage) {
+        this.profilage = profilage;
+    }
+
+    // Destinataire de la trace des prochaines exécutions (null : pas de trace)
+    public void setTrace(TraceSink trace) {
+        this.trace = trace;
+    }
+
+    /* Partie
+     * =================================== */
+
+    // Replace les robots en position de départ, avec tous leurs points de vie
+    public void reinitialiser() {
+        grille.resetGrille();
+        robots.clear();
+        lastDir = null;
+
+        robots.put(Cible.ROBOT_JOUEUR, new Robot("Robot1", grille.getCase(mapI.startPos[0], mapI.startPos[1])));
+
+        switch (mapI.typeMap) {
+            case TUTO_SHOOT:
+                Robot tourelle = new Robot("Tourelle", grille.getCase(mapI.towerPos[0], mapI.towerPos[1]));
+                tourelle.setPv(Robot.PVMAX_T);
+                robots.put(Cible.TOURELLE, tourelle);
+            break;
+            case TUTO_MULTI:
+                Robot ennemi = new Robot("Ennemi", grille.getCase(mapI.ennemyPos[0], mapI.ennemyPos[1]));
+                ennemi.setPv(Robot.PVMAX_T);
+                robots.put(Cible.ROBOT_ENNEMI, ennemi);
+            break;
+        }
+    }
+
+    /**
+     * Exécute un script sur la carte, depuis les positions de départ.
+     */
+    public Resultat executer(String script) {
+        return executer(script, null);
+    }
+
+    /**
+     * Exécute un script sur la carte, depuis les positions de départ, en
+     * s'arrêtant avec l'issue ANNULE dès que la poignée est annulée.
+     *
+     * @param annulation Poignée d'annulation (null : l'exécution va jusqu'au bout).
+     */
+    public Resultat executer(String script, Annulation annulation) {
+        reinitialiser();
+
+        final Resultat res = new Resultat();
+
+        // On instancie l'interpréteur
+        Interpreter rKode = new Interpreter();
+        rKode.setBudget(mapI.budget);
+        rKode.setProfilage(profilage);
+        rKode.setTrace(trace);
+        rKode.setAnnulation(annulation);
+
+        // Les capteurs du script sont lus directement sur le modèle, sans interrompre l'interprétation
+        rKode.setWorldQuery(new WorldQuery() {
+            @Override
+            public Direction detecterEnnemi() {
+                return determinerSens(getRobotJoueur());
+            }
+
+            @Override
+            public boolean estVivant() {
+                Robot opponent = (getRobotSecond() != null ? getRobotSecond() : getTourelle());
+                if (opponent != null) return opponent.vivant();
+
+                // On ne peut utiliser cette instruction que s'il existe un ennemi : on le signale au joueur
+                res.evenements.add(Evenement.AUCUN_ENNEMI);
+                res.actions.add(new Action(BulleType.QUESTION, 0));
+                return false;
+            }
+        });
+
+        // On interprète le script
+        InterpreterMessage msg = rKode.interpret(script);
+
+        // => s'il y a une erreur de syntaxe, on s'arrête là
+        if (msg.type == InterpreterMessage.TypeMessage.SYNTAX_ERR) {
+            res.issue = Issue.ERREUR_SYNTAXE;
+            res.erreurs = msg.errorList;
+            res.dernierMessage = msg.type;
+            return res;
+        }
+
+        // Signale l'exécution d'une action (déplacement\attaque)
+        boolean acted = false;
+
+        while (res.issue == null) {
+            // Si on est en mode TUTO_MULTI, on effectue une action pour le robot ennemi
+            if (mapI.typeMap == MapInfo.MapType.TUTO_MULTI && acted) {
+                Action action = actSecondRobot();
+                if (action != null) res.actions.add(action);
+                acted = false;
+            }
+
+            switch (msg.type) {
+                case LOOP_LIMIT:
+                    res.issue = Issue.BOUCLE_INFINIE;
+
+                    // Les actions et événements précédents sont invalides
+                    res.actions.clear();
+                    res.evenements.clear();
+
+                    res.evenements.add(Evenement.BOUCLE_INFINIE);
+                    res.actions.add(new Action(BulleType.INFINITE, 0));
+                break;
+                case ANNULE:
+                    // Le résultat ne sera pas exploité : on s'arrête là, sans rien ajouter
+                    res.issue = Issue.ANNULE;
+                break;
+                case END_PRG:
+                    res.issue = Issue.TERMINE;
+
+                    res.evenements.add(Evenement.TERMINE);
+                    res.actions.add(new Action(BulleType.FINISH, 0));
+                break;
+                case DEPLACEMENT:
+                    if (msg.dirInst != null) {
+                        // On déplace le joueur dans la direction voulue, si c'est possible
+                        if (deplacer(getRobotJoueur(), msg.dirInst)) {
+                            ajouterDeplacement(res, getRobotJoueur(), msg.dirInst, 0);
+                        } else {
+                            res.evenements.add(Evenement.BLOQUE);
+                            res.actions.add(new Action(BulleType.NOWALK, 0));
+                        }
+                    } else {
+                        // Le paramètre direction utilisé n'est pas valué
+                        res.evenements.add(Evenement.DIRECTION_INVALIDE);
+                        res.actions.add(new Action(BulleType.QUESTION, 0));
+                    }
+                    acted = true;
+                break;
+                case TIRER:
+                    if (msg.dirInst != null) {
+                        res.actions.add(tirer(getRobotJoueur(), msg.dirInst));
+                    } else {
+                        res.evenements.add(Evenement.ATTAQUE_INVALIDE);
+                        res.actions.add(new Action(BulleType.QUESTION, 0));
+                    }
+                    acted = true;
+                break;
+                case RECHARGER:
+                    // Le joueur recharge ses munitions : on marque un temps d'attente
+                    res.actions.add(new Action(Action.ActionType.WAIT));
+                    acted = true;
+                break;
+                case MELEE:
+                    // L'attaque au corps à corps n'a pas encore d'effet dans le jeu : le tour passe
+                    acted = true;
+                break;
+                default:
+                    throw new IllegalStateException("Simulation : message de l'interpréteur inattendu : " + msg.type);
+            }
+
+            // On vérifie si le joueur a fini le niveau tutoriel après cette dernière action
+            if (niveauFini()) {
+                res.issue = Issue.GAGNE;
+
+                // Partie gagnée : 3 étoiles
+                res.etoiles = 3;
+                res.actions.add(new Action(res.etoiles));
+            }
+
+            // Si le programme du joueur n'est pas terminé, on continue l'exécution du programme
+            if (res.issue == null) msg = rKode.restart();
+        }
+
+        res.dernierMessage = msg.type;
+        res.consommation = rKode.getContext().getConsommation();
+        res.profil = rKode.getProfile();
+        return res;
+    }
+
+    // Renvoie vrai si le niveau tutoriel est achevé
+    public boolean niveauFini() {
+        // Les objectifs varient selon le type de tutoriel
+        switch (mapI.typeMap) {
+            case TUTO_MOVE:
+                // => Si le but est d'arriver à une case, on vérifie si la position est atteinte
+                return Arrays.equals(getRobotJoueur().getPositionInt(), mapI.endPos);
+            case TUTO_SHOOT:
+                // => On vérifie si la tourelle n'a plus de points de vie
+                return !getTourelle().vivant();
+            case TUTO_MULTI:
+                // => On vérifie si le robot ennemi est en vie
+                return !getRobotSecond().vivant();
+            default:
+                return false;
+        }
+    }
+
+    /* Getters
+     * =================================== */
+
+    public MapInfo getMapInfo() {
+        return mapI;
+    }
+
+    public Grille getGrille() {
+        return grille;
+    }
+
+    // Renvoie le robot du joueur principal
+    public Robot getRobotJoueur() {
+        return robots.get(Cible.ROBOT_JOUEUR);
+    }
+
+    // Renvoie le deuxième robot (IA ou joueur en multi)
+    public Robot getRobotSecond() {
+        return robots.get(Cible.ROBOT_ENNEMI);
+    }
+
+    // Renvoie une tourelle placée sur la map
+    public Robot getTourelle() {
+        return robots.get(Cible.TOURELLE);
+    }
+
+    /* Méthodes d'action sur les robots
+     * =================================== */
+
+    // Ajoute le déplacement réussi d'un robot à la liste d'actions
+    // => les déplacements identiques consécutifs sont fusionnés en un seul MOVE_N, avec le chemin parcouru
+    private void ajouterDeplacement(Resultat res, Robot robot, Direction dir, int indexJ) {
+        Action derniere = res.actions.isEmpty() ? null : res.actions.get(res.actions.size() - 1);
+
+        if (derniere != null && derniere.prolongeable(dir, indexJ)) {
+            derniere.prolonger(robot.getLigne(), robot.getColonne());
+        } else {
+            Action action = new Action(dir, indexJ);
+            action.coord = new int[]{ robot.getLigne(), robot.getColonne() };
+            action.nbPas = 1;
+            res.actions.add(action);
+        }
+    }
+
+    // Fait tirer le robot dans la direction dir, et renvoie l'action correspondante
+    private Action tirer(Robot robot, Direction dir) {
+        Action linkedAction = null;
+
+        // Si quelque chose est touché : il faut une animation "dégâts subis"
+        Robot target = attaqueDist(robot, dir);
+        if (target != null) {
+            if (target == getTourelle()) {
+                // On ajoute une action liée pour signaler que la tourelle a subi des dégâts
+                linkedAction = new Action(0, target.getPv());
+            } else {
+                // On ajoute une action liée pour signaler que le robot a subi des dégâts
+                linkedAction = new Action(Action.ActionType.SET_HP_ROBOT);
+                linkedAction.indexJ = 1;  linkedAction.HP = target.getPv();
+            }
+        }
+
+        // Le projectile s'arrête sur le premier obstacle dans cette direction
+        int[] coord = grille.getFirstObstacle(robot.getPositionAct(), dir, true);
+
+        Action action = new Action(dir, 0, coord);
+        action.linkedAction = linkedAction;
+        return action;
+    }
+
+    // Simule une action pour le deuxième robot en mode tutoriel
+    private Action actSecondRobot() {
+        Robot ennemi = getRobotSecond();
+        Direction dir;
+
+        // Si le robot n'a plus de points de vie, il n'est pas déplacé
+        if (!ennemi.vivant()) return null;
+
+        // Le robot fait des allers-retours entre les colonnes 5 et 1
+        if (ennemi.getColonne() == 5) {
+            dir = Direction.BG;
+        } else if (ennemi.getColonne() == 1) {
+            dir = Direction.HD;
+        } else {
+            dir = lastDir;
+        }
+
+        // On déplace le robot dans le modèle
+        if (dir == Direction.BG)
+            ennemi.setPosition(grille.getCase(ennemi.getLigne(), ennemi.getColonne()-1));
+        else
+            ennemi.setPosition(grille.getCase(ennemi.getLigne(), ennemi.getColonne()+1));
+
+        lastDir = dir;
+        return new Action(dir, 1);
+    }
+
+    // Déplace le robot en paramètre vers la direction en paramètres
+    // Renvoie true si le déplacement est possible, false sinon
+    public boolean deplacer(Robot robot, Direction dir) {
+        if (dir == Direction.HG && robot.getLigne() != 0 && grille.getCase(robot.getLigne() - 1, robot.getColonne()).aucunObstacle() &&
+                !grille.verifBarrieresTuile(robot.getPositionAct(), grille.getCase(robot.getLigne() - 1, robot.getColonne()))) { //on vérifie qu'un déplacement est possible en haut à gauche
+            robot.setPosition(grille.getCase(robot.getLigne() - 1, robot.getColonne())); //on met à jour la position du robot
+        } else if (dir == Direction.BG && robot.getColonne() != 0 && grille.getCase(robot.getLigne(), robot.getColonne() - 1).aucunObstacle() &&
+                !grille.verifBarrieresTuile(robot.getPositionAct(), grille.getCase(robot.getLigne(), robot.getColonne() - 1))) { //on vérifie qu'un déplacement est possible en bas à gauche
+            robot.setPosition(grille.getCase(robot.getLigne(), robot.getColonne() - 1)); //on met à jour la position du robot
+        } else if (dir == Direction.BD && robot.getLigne() != 9 && grille.getCase(robot.getLigne() + 1, robot.getColonne()).aucunObstacle() &&
+                !grille.verifBarrieresTuile(robot.getPositionAct(), grille.getCase(robot.getLigne() + 1, robot.getColonne()))) { //on vérifie qu'un déplacement est possible en bas à droite
+            robot.setPosition(grille.getCase(robot.getLigne() + 1, robot.getColonne())); //on met à jour la position du robot
+        } else if (dir == Direction.HD && robot.getColonne() != 9 && grille.getCase(robot.getLigne(), robot.getColonne() + 1).aucunObstacle() &&
+                !grille.verifBarrieresTuile(robot.getPositionAct(), grille.getCase(robot.getLigne(), robot.getColonne() + 1))) { //on vérifie qu'un déplacement est possible en haut à droite
+            robot.setPosition(grille.getCase(robot.getLigne(), robot.getColonne() + 1)); //on met à jour la position du robot
+        } else //si on ne reçoit pas de direction, qu'un obstacle bloque la route ou qu'on se déplace vers l'extérieur de la map
+            return false;
+
+        // On renvoie vrai dans tous les autres cas
+        return true;
+    }
+
+    // Fait attaquer à distance le robot en paramètre dans la direction en paramètre
+    public Robot attaqueDist(Robot robot, Direction dir) {
+        // S'il y a un deuxième robot, ou une tourelle
+        if (robots.size() > 1) {
+            // On vérifie si un robot est atteignable dans cette direction
+            Robot target = grille.getFirstRobot(robot.getPositionAct(), dir);
+            if (target != null) {
+                target.takeDamage(Robot.DEGATSDIST);
+                return target;  // On renvoie le robot touché
+            }
+        }
+
+        return null;
+    }
+
+    // Renvoie la direction de l'ennemi de robot1, s'ils sont sur une même ligne de vue
+    // Et null sinon
+    public Direction determinerSens(Robot robot1) {
+        // On teste la présence d'un robot en ligne de vue dans chacune des directions
+        for (Direction dir : Direction.values()) {
+            // Si la case contient un ennemi, on renvoie sa direction
+            if (!grille.getFirstObstacleT(robot1.getPositionAct(), dir, false).estLibre()) {
+                return dir;
+            }
+        }
+
+        return null;
+    }
+}
@@ -7,6 +7,7 @@ package com.robokode.utils;
 
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.robokode.utils.maps.MapRessources;
 import org.fife.ui.rsyntaxtextarea.Theme;
 
 import java.io.File;
@@ -21,13 +22,10 @@ import java.util.HashMap;
  */
 public class Ressources {
     // Constantes du jeu
-    public static final int NB_LEVELS = 5;
+    public static final int NB_LEVELS = MapRessources.NB_LEVELS;
 
     // Classe statique servant à distribuer les fichiers ressources parmi les différentes classes
-    private static String workDir = "res/";
-
-    // Noms des fichiers associés aux tutoriels
-    private static String[] maps = {"tuto0.", "tuto1.", "tuto2.", "tuto3.", "tuto4."};
+    private static String workDir = MapRessources.WORK_DIR;
 
     // Ressources chargées statiquement
     private HashMap<String,Texture> textureMap;
@@ -72,12 +70,12 @@ public class Ressources {
 
     // Renvoie le chemin vers le fichier TMX de la map à partir de son index
     public static String getMap(int index) {
-        return workDir + "Maps/" + maps[index] + "tmx";
+        return MapRessources.getMap(index);
     }
 
     // Renvoie le chemin vers le fichier RKMP de l'info de la map
     public static String getMapInfo(int index) {
-        return workDir + "Maps/info/" + maps[index] + "rkmp";
+        return MapRessources.getMapInfo(index);
     }
 
     /**   Sprites   **/
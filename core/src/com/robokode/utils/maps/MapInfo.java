@@ -1,14 +1,18 @@
 package com.robokode.utils.maps;
 
-import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.XmlReader;
-import com.badlogic.gdx.utils.XmlReader.Element;
+import com.robokode.interpreter.Budget;
 import com.robokode.utils.ConsoleLog;
-import com.robokode.utils.Ressources;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.*;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.List;
 
 public class MapInfo {
 
@@ -41,6 +45,9 @@ public class MapInfo {
     // Positions d'éléments de la carte
     public int[] towerPos;
 
+    // Budget d'exécution des scripts sur cette carte
+    public Budget budget = Budget.DEFAUT;
+
     /** Constructeur principal **/
     public MapInfo(int id) {
         this.obstacles = new ArrayList<int[]>();
@@ -48,41 +55,49 @@ public class MapInfo {
         this.reliefs = new ArrayList<int[]>();
 
         this.id = id;
-        this.tmxSrc = Ressources.getMap(id);
-        this.rkmpSrc = Ressources.getMapInfo(id);
+        this.tmxSrc = MapRessources.getMap(id);
+        this.rkmpSrc = MapRessources.getMapInfo(id);
 
         // On récupère l'info de la map
         parseXML();
     }
 
     private void parseXML() {
-        int[] coord;  Array<Element> items;
+        int[] coord;  List<Element> items;
 
-        XmlReader reader = new XmlReader();
-        Element root = reader.parse(readFile(rkmpSrc));
+        // Parseur XML du JDK : le chargement des cartes ne dépend pas de libGDX
+        Element root;
+        try {
+            root = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(new InputSource(new StringReader(readFile(rkmpSrc))))
+                    .getDocumentElement();
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            ConsoleLog.put("MapInfo : Fichier de carte invalide : " + rkmpSrc + " (" + ex.getMessage() + ")", true);
+            return;
+        }
 
         // On lit le type de carte => on le transforme en énuméré
-        Element mapGoal = root.getChildByName("mapGoal");
+        Element mapGoal = getChildByName(root, "mapGoal");
         String mapType = mapGoal.getAttribute("type");
 
         switch (mapType) {
             case "TUTO_MOVE":
                 typeMap = MapType.TUTO_MOVE;
                 // On lit la cellule d'arrivée du joueur
-                Element endCell = mapGoal.getChildByName("endCell");
-                endPos = text2Coord(endCell.getText());
+                Element endCell = getChildByName(mapGoal, "endCell");
+                endPos = text2Coord(getText(endCell));
             break;
             case "TUTO_SHOOT":
                 typeMap = MapType.TUTO_SHOOT;
                 // On récupère les coordonnées de la tourelle à positionner
-                Element towerCell = mapGoal.getChildByName("tower");
-                towerPos = text2Coord(towerCell.getText());
+                Element towerCell = getChildByName(mapGoal, "tower");
+                towerPos = text2Coord(getText(towerCell));
             break;
             case "TUTO_MULTI":
                 typeMap = MapType.TUTO_MULTI;
                 // On récupère les coordonnées de départ du robot ennemi
-                Element startCell = mapGoal.getChildByName("ennemyPos");
-                ennemyPos = text2Coord(startCell.getText());
+                Element startCell = getChildByName(mapGoal, "ennemyPos");
+                ennemyPos = text2Coord(getText(startCell));
             break;
             case "MULTI":
                 typeMap = MapType.MULTI;
@@ -94,18 +109,18 @@ public class MapInfo {
         }
 
         // On lit la coordonnée de départ du personnage
-        Element startCell = root.getChildByName("startCell");
-        startPos = text2Coord(startCell.getText());
+        Element startCell = getChildByName(root, "startCell");
+        startPos = text2Coord(getText(startCell));
 
         // On lit les objets en relief
-        Element relief = root.getChildByName("relief");
+        Element relief = getChildByName(root, "relief");
         if (relief != null) {
-            items = relief.getChildrenByName("coord");
+            items = getChildrenByName(relief, "coord");
 
             // On lit le contenu de chaque noeud <coord>
             for (Element child : items)
             {
-                coord = text2Coord(child.getText());
+                coord = text2Coord(getText(child));
                 // On ajoute les coordonnées de l'obstacle à la map
                 reliefs.add(coord);
             }
@@ -114,19 +129,19 @@ public class MapInfo {
         }
 
         // On lit les barrières de la map
-        Element barrieresNode = root.getChildByName("barrieres");
+        Element barrieresNode = getChildByName(root, "barrieres");
         if (barrieresNode != null) {
-            items = barrieresNode.getChildrenByName("barriere");
+            items = getChildrenByName(barrieresNode, "barriere");
 
             // On lit le contenu de chaque noeud <barriere>
             for (Element child : items)
             {
                 // Pour chaque barriere, on ajoute un array de taille 4 [x1;y1,x2;y2] à la liste
                 int[] wallCoord = new int[4]; int id = 0;
-                Array<Element> coordList = child.getChildrenByName("coord");
+                List<Element> coordList = getChildrenByName(child, "coord");
 
                 for (Element dCoord : coordList) {
-                    coord = text2Coord(dCoord.getText());
+                    coord = text2Coord(getText(dCoord));
 
                     wallCoord[id] = coord[0];
                     wallCoord[id+1] = coord[1];
@@ -140,14 +155,18 @@ public class MapInfo {
             items.clear();
         }
 
+        // On lit le budget d'exécution des scripts, s'il est déclaré
+        Element budgetNode = getChildByName(root, "budget");
+        if (budgetNode != null) budget = text2Budget(budgetNode);
+
         // On lit les obstacles de la carte
-        Element obst = root.getChildByName("obstacles");
-        items = obst.getChildrenByName("coord");
+        Element obst = getChildByName(root, "obstacles");
+        items = getChildrenByName(obst, "coord");
 
         // On lit le contenu de chaque noeud <coord>
         for (Element child : items)
         {
-            coord = text2Coord(child.getText());
+            coord = text2Coord(getText(child));
             // On ajoute les coordonnées de l'obstacle à la map
             obstacles.add(coord);
         }
@@ -168,6 +187,63 @@ public class MapInfo {
         return new int[] {Integer.valueOf(coordS[0]), Integer.valueOf(coordS[1])};
     }
 
+    /**
+     * Convertit un noeud <budget> en Budget : les attributs absents prennent
+     * les valeurs du budget par défaut
+     */
+    private Budget text2Budget(Element node) {
+        try {
+            return new Budget(
+                    getIntAttribute(node, "limite", Budget.DEFAUT.getLimite()),
+                    getIntAttribute(node, "action", 1),
+                    getIntAttribute(node, "capteur", 1),
+                    getIntAttribute(node, "instruction", 1),
+                    getIntAttribute(node, "saut", 1),
+                    getIntAttribute(node, "operateur", 0),
+                    getIntAttribute(node, "millis", 0),
+                    getIntAttribute(node, "allocationKo", 0) * 1024L);
+        } catch (IllegalArgumentException ex) {
+            ConsoleLog.put("MapInfo : Budget invalide, budget par défaut utilisé : " + ex.getMessage());
+            return Budget.DEFAUT;
+        }
+    }
+
+    /**
+     * Renvoie le premier fils direct du noeud portant ce nom, null s'il n'y en a pas
+     */
+    private static Element getChildByName(Element parent, String name) {
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element && n.getNodeName().equals(name)) return (Element) n;
+        }
+        return null;
+    }
+
+    /**
+     * Renvoie les fils directs du noeud portant ce nom, dans l'ordre du fichier
+     */
+    private static List<Element> getChildrenByName(Element parent, String name) {
+        List<Element> children = new ArrayList<Element>();
+        for (Node n = parent.getFirstChild(); n != null; n = n.getNextSibling()) {
+            if (n instanceof Element && n.getNodeName().equals(name)) children.add((Element) n);
+        }
+        return children;
+    }
+
+    /**
+     * Renvoie le texte d'un noeud, sans les blancs qui l'entourent
+     */
+    private static String getText(Element node) {
+        return node.getTextContent().trim();
+    }
+
+    /**
+     * Renvoie la valeur entière d'un attribut, ou la valeur par défaut s'il est absent
+     */
+    private static int getIntAttribute(Element node, String name, int defaultValue) {
+        if (!node.hasAttribute(name)) return defaultValue;
+        return Integer.parseInt(node.getAttribute(name));
+    }
+
     /**
      * Lit le contenu d'un fichier et en renvoie le contenu en une seule chaîne
      * de caractères.
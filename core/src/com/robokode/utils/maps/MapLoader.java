@@ -1,7 +1,5 @@
 package com.robokode.utils.maps;
 
-import com.robokode.utils.Ressources;
-
 import java.util.HashMap;
 
 /** Classe singleton servant à charger les informations d'une map **/
@@ -17,7 +15,7 @@ public class MapLoader {
 
         // => On charge toutes les maps
         MapInfo mapTemp;
-        for (int i=0; i< Ressources.NB_LEVELS; i++) {
+        for (int i=0; i< MapRessources.NB_LEVELS; i++) {
             mapTemp = new MapInfo(i);
             mapMap.put(i, mapTemp);
         }
@@ -32,7 +30,7 @@ public class MapLoader {
     private static MapLoader INSTANCE = null;
 
     // Point d'accès
-    public static MapLoader Instance()
+    public static synchronized MapLoader Instance()
     {
         if (INSTANCE == null)
         { 	INSTANCE = new MapLoader();
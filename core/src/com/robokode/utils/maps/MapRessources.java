@@ -0,0 +1,28 @@
+package com.robokode.utils.maps;
+
+/**
+ * Chemins des fichiers de cartes, sans dépendance à libGDX : la simulation
+ * et le serveur de correction chargent les cartes sans ouvrir de fenêtre
+ */
+public class MapRessources {
+    // Nombre de niveaux du jeu
+    public static final int NB_LEVELS = 5;
+
+    // Dossier racine des ressources de jeu
+    public static final String WORK_DIR = "res/";
+
+    // Noms des fichiers associés aux tutoriels
+    private static final String[] maps = {"tuto0.", "tuto1.", "tuto2.", "tuto3.", "tuto4."};
+
+    private MapRessources() {}
+
+    // Renvoie le chemin vers le fichier TMX de la map à partir de son index
+    public static String getMap(int index) {
+        return WORK_DIR + "Maps/" + maps[index] + "tmx";
+    }
+
+    // Renvoie le chemin vers le fichier RKMP de l'info de la map
+    public static String getMapInfo(int index) {
+        return WORK_DIR + "Maps/info/" + maps[index] + "rkmp";
+    }
+}
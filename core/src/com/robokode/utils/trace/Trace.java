@@ -0,0 +1,153 @@
+package com.robokode.utils.trace;
+
+import com.robokode.game.mvc.Action;
+import com.robokode.interpreter.InterpreterMessage.TypeMessage;
+import com.robokode.interpreter.TraceSink;
+import com.robokode.utils.Direction;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Trace d'une exécution d'un script, encodée au fil de l'eau dans un tampon
+ * binaire compact, puis publiée d'un bloc dans l'anneau du TraceRecorder.
+ *
+ * Format : une suite d'enregistrements dont le premier octet porte le type
+ * (3 bits de poids faible) et une petite valeur (5 bits de poids fort, 31 :
+ * la valeur suit en varint). Les entiers sont des varints LEB128, zigzag pour
+ * ceux qui peuvent être négatifs.
+ *
+ *   RUN        numéro du run, date (ms), carte, hash du script
+ *   STATEMENT  valeur = zigzag(écart au statement précédent - 1) : un
+ *              programme sans saut trace un octet par statement
+ *   DETECTER   valeur = ordinal de la direction + 1 (0 : pas d'ennemi)
+ *   ESTVIVANT  valeur = 0\1
+ *              (un capteur est tracé avant le statement qui l'utilise)
+ *   ACTION     valeur = type ; joueur, direction + 1, bulle + 1, HP, étoiles,
+ *              tourelle, pas, coordonnées (nombre puis valeurs), puis 1 et
+ *              l'action liée, ou 0
+ *   FIN        valeur = type du dernier message de l'interpréteur ; consommation
+ *
+ * Une trace est remplie par un seul thread.
+ */
+public final class Trace implements TraceSink {
+    // Types d'enregistrements
+    static final int RUN = 0, STATEMENT = 1, DETECTER = 2, ESTVIVANT = 3, ACTION = 4, FIN = 5;
+
+    // Valeur portée par l'entête au-delà de laquelle elle suit en varint
+    static final int VALEUR_LONGUE = 31;
+
+    // Taille maximale d'un enregistrement sans coordonnées
+    private static final int MAX_ENREGISTREMENT = 128;
+
+    private final TraceRecorder recorder;
+    private ByteBuffer tampon;
+
+    // Dernier statement tracé
+    private int dernier = -1;
+
+    Trace(TraceRecorder recorder, ByteBuffer tampon, long run, int carte, String script) {
+        this.recorder = recorder;
+        this.tampon = tampon;
+
+        entete(RUN, 0);
+        varint(run);
+        varint(System.currentTimeMillis());
+        varint(carte);
+        varint(script.hashCode() & 0xFFFFFFFFL);
+    }
+
+    /* Enregistrements
+     * =================================== */
+
+    @Override
+    public void statement(int statement) {
+        entete(STATEMENT, zigzag(statement - dernier - 1));
+        dernier = statement;
+    }
+
+    @Override
+    public void detecterEnnemi(Direction dir) {
+        entete(DETECTER, (dir != null) ? dir.ordinal() + 1 : 0);
+    }
+
+    @Override
+    public void estVivant(boolean vivant) {
+        entete(ESTVIVANT, vivant ? 1 : 0);
+    }
+
+    /** Action transmise à la vue **/
+    public void action(Action action) {
+        int nbCoord = (action.coord != null) ? action.coord.length : 0;
+        reserver(MAX_ENREGISTREMENT + 5 * nbCoord);
+
+        entete(ACTION, action.type.ordinal());
+        varint(action.indexJ);
+        varint((action.dir != null) ? action.dir.ordinal() + 1 : 0);
+        varint((action.bulle != null) ? action.bulle.ordinal() + 1 : 0);
+        varint(zigzag(action.HP));
+        varint(action.nbEtoiles);
+        varint(action.indexT);
+        varint(action.nbPas);
+        varint(nbCoord);
+        for (int i = 0; i < nbCoord; i++) varint(zigzag(action.coord[i]));
+
+        if (action.linkedAction != null) {
+            varint(1);
+            action(action.linkedAction);
+        } else {
+            varint(0);
+        }
+    }
+
+    /**
+     * Termine la trace et la confie au recorder pour écriture sur disque.
+     * La trace ne doit plus être utilisée ensuite.
+     *
+     * @param type Dernier message de l'interpréteur.
+     * @param consommation Budget consommé par l'exécution.
+     */
+    public void fermer(TypeMessage type, long consommation) {
+        entete(FIN, type.ordinal());
+        varint(consommation);
+
+        tampon.flip();
+        recorder.publier(tampon);
+        tampon = null;
+    }
+
+    /* Encodage
+     * =================================== */
+
+    private void entete(int type, long valeur) {
+        reserver(MAX_ENREGISTREMENT);
+        if (valeur < VALEUR_LONGUE) {
+            tampon.put((byte) (type | valeur << 3));
+        } else {
+            tampon.put((byte) (type | VALEUR_LONGUE << 3));
+            varint(valeur);
+        }
+    }
+
+    private void varint(long valeur) {
+        while ((valeur & ~0x7FL) != 0) {
+            tampon.put((byte) ((valeur & 0x7F) | 0x80));
+            valeur >>>= 7;
+        }
+        tampon.put((byte) valeur);
+    }
+
+    private static long zigzag(int valeur) {
+        return ((valeur << 1) ^ (valeur >> 31)) & 0xFFFFFFFFL;
+    }
+
+    // Agrandit le tampon si les prochains octets n'y tiennent pas
+    private void reserver(int octets) {
+        if (tampon.remaining() >= octets) return;
+
+        ByteBuffer plusGrand = ByteBuffer.allocate(Math.max(tampon.capacity() * 2, tampon.position() + octets));
+        tampon.flip();
+        plusGrand.put(tampon);
+        tampon = plusGrand;
+        recorder.agrandi(plusGrand);
+    }
+}
@@ -0,0 +1,196 @@
+package com.robokode.utils.trace;
+
+import com.robokode.game.mvc.Action;
+import com.robokode.game.mvc.Action.ActionType;
+import com.robokode.interpreter.InterpreterMessage.TypeMessage;
+import com.robokode.utils.BulleType;
+import com.robokode.utils.Direction;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static com.robokode.utils.trace.Trace.*;
+
+/**
+ * Décodeur des fichiers de traces (cf. Trace pour le format).
+ *
+ * Usage : TraceReader fichier [run]
+ * Affiche tous les runs du fichier, ou seulement celui demandé.
+ */
+public final class TraceReader {
+    private static final ActionType[] ACTIONS = ActionType.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final BulleType[] BULLES = BulleType.values();
+    private static final TypeMessage[] MESSAGES = TypeMessage.values();
+
+    private final ByteBuffer donnees;
+    private final PrintStream sortie;
+
+    // Run retenu (-1 : tous)
+    private final long filtre;
+
+    // Runs décodés, et run en cours de lecture (null s'il n'est pas retenu)
+    private final List<TraceRun> runs = new ArrayList<>();
+    private TraceRun courant;
+
+    // Dernier statement lu
+    private int dernier;
+
+    /**
+     * @param filtre Run à décoder (-1 : tous).
+     * @param sortie Flux sur lequel afficher les enregistrements (null : aucun affichage).
+     */
+    public TraceReader(ByteBuffer donnees, long filtre, PrintStream sortie) {
+        this.donnees = donnees;
+        this.filtre = filtre;
+        this.sortie = sortie;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage : TraceReader fichier [run]");
+            System.exit(1);
+        }
+
+        ByteBuffer donnees = ByteBuffer.wrap(Files.readAllBytes(Paths.get(args[0])));
+        long filtre = (args.length > 1) ? Long.parseLong(args[1]) : -1;
+        new TraceReader(donnees, filtre, System.out).lire();
+    }
+
+    /** Décode toutes les exécutions d'un fichier de traces **/
+    public static List<TraceRun> charger(Path fichier) throws IOException {
+        return new TraceReader(ByteBuffer.wrap(Files.readAllBytes(fichier)), -1, null).lire();
+    }
+
+    /** Décode les traces, et les affiche si une sortie est définie **/
+    public List<TraceRun> lire() {
+        try {
+            while (donnees.hasRemaining()) enregistrement();
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            if (sortie != null) sortie.println("!! trace tronquée à l'octet " + donnees.position());
+        }
+        return runs;
+    }
+
+    private void enregistrement() {
+        int entete = donnees.get() & 0xFF;
+        int type = entete & 0x7;
+        long valeur = entete >>> 3;
+        if (valeur == VALEUR_LONGUE) valeur = varint();
+
+        switch (type) {
+            case RUN:
+                TraceRun run = new TraceRun();
+                run.run = varint();
+                run.date = new Date(varint());
+                run.carte = (int) varint();
+                run.script = varint();
+
+                courant = (filtre < 0 || filtre == run.run) ? run : null;
+                if (courant != null) runs.add(courant);
+                dernier = -1;
+                afficher(run.toString());
+                break;
+            case STATEMENT:
+                dernier += dezigzag(valeur) + 1;
+                if (courant != null) courant.nbStatements++;
+                afficher("  statement " + dernier);
+                break;
+            case DETECTER:
+                if (courant != null) courant.nbCapteurs++;
+                afficher("    detecterEnnemi() = " + ((valeur > 0) ? DIRECTIONS[(int) valeur - 1] : "aucun"));
+                break;
+            case ESTVIVANT:
+                if (courant != null) courant.nbCapteurs++;
+                afficher("    estVivant() = " + (valeur != 0));
+                break;
+            case ACTION:
+                Action action = action((int) valeur);
+                if (courant != null) courant.actions.add(action);
+                afficher("  action " + format(action));
+                break;
+            case FIN:
+                TypeMessage fin = MESSAGES[(int) valeur];
+                long consommation = varint();
+                if (courant != null) {
+                    courant.fin = fin;      courant.consommation = consommation;
+                }
+                afficher("fin " + fin + ", consommation " + consommation);
+                break;
+            default:
+                throw new IllegalStateException("Enregistrement inconnu " + type + " à l'octet " + (donnees.position() - 1));
+        }
+    }
+
+    // Décode une action (l'entête est déjà lue), et ses actions liées
+    private Action action(int type) {
+        Action action = new Action(ACTIONS[type]);
+
+        action.indexJ = (int) varint();
+        long dir = varint(), bulle = varint();
+        if (dir > 0) action.dir = DIRECTIONS[(int) dir - 1];
+        if (bulle > 0) action.bulle = BULLES[(int) bulle - 1];
+
+        action.HP = dezigzag(varint());
+        action.nbEtoiles = (int) varint();
+        action.indexT = (int) varint();
+        action.nbPas = (int) varint();
+
+        int nbCoord = (int) varint();
+        if (nbCoord > 0) {
+            action.coord = new int[nbCoord];
+            for (int i = 0; i < nbCoord; i++) action.coord[i] = dezigzag(varint());
+        }
+
+        if (varint() != 0) {
+            // L'action liée suit avec son propre entête
+            long lie = (donnees.get() & 0xFF) >>> 3;
+            if (lie == VALEUR_LONGUE) lie = varint();
+            action.linkedAction = action((int) lie);
+        }
+        return action;
+    }
+
+    // Affichage d'une action : seuls les champs renseignés
+    private static String format(Action action) {
+        StringBuilder sb = new StringBuilder().append(action.type).append(" joueur=").append(action.indexJ);
+
+        if (action.dir != null) sb.append(" dir=").append(action.dir);
+        if (action.bulle != null) sb.append(" bulle=").append(action.bulle);
+        if (action.HP != 0) sb.append(" HP=").append(action.HP);
+        if (action.nbEtoiles != 0) sb.append(" etoiles=").append(action.nbEtoiles);
+        if (action.indexT != 0) sb.append(" tourelle=").append(action.indexT);
+        if (action.nbPas != 0) sb.append(" pas=").append(action.nbPas);
+        if (action.coord != null) sb.append(" coord=").append(Arrays.toString(action.coord));
+        if (action.linkedAction != null) sb.append(" -> ").append(format(action.linkedAction));
+
+        return sb.toString();
+    }
+
+    private void afficher(String ligne) {
+        if (sortie != null && courant != null) sortie.println(ligne);
+    }
+
+    private long varint() {
+        long valeur = 0;
+        for (int decalage = 0; ; decalage += 7) {
+            byte b = donnees.get();
+            valeur |= (long) (b & 0x7F) << decalage;
+            if (b >= 0) return valeur;
+        }
+    }
+
+    private static int dezigzag(long valeur) {
+        int v = (int) valeur;
+        return (v >>> 1) ^ -(v & 1);
+    }
+}
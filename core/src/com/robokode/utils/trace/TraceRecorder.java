@@ -0,0 +1,213 @@
+package com.robokode.utils.trace;
+
+import com.robokode.utils.ConsoleLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enregistreur des traces d'exécution, activé par la propriété robokode.trace
+ * (chemin du fichier de traces, ouvert en ajout).
+ *
+ * Chaque thread encode ses traces dans un tampon local réutilisé, puis les
+ * publie d'un bloc dans un anneau de tampons de taille fixe. Un thread dédié
+ * écrit sur disque les tampons pleins, par lots, et vide régulièrement le
+ * tampon en cours. Les traces n'allouent donc rien en régime établi, et le
+ * jeu n'attend jamais le disque : si l'anneau est plein, la trace est perdue
+ * (et comptée).
+ */
+public final class TraceRecorder {
+    private static TraceRecorder instance;
+    private static boolean initialise;
+
+    // Anneau de tampons
+    private static final int TAILLE_TAMPON = 64 * 1024;
+    private static final int NB_TAMPONS = 16;
+
+    // Délai au-delà duquel un tampon partiellement rempli est écrit (en ms)
+    private static final long DELAI_ECRITURE = 1000;
+
+    // Taille initiale du tampon local de chaque thread
+    private static final int TAILLE_LOCALE = 4 * 1024;
+
+    private final FileChannel fichier;
+
+    // Tampons libres, et tampons remplis en attente d'écriture
+    private final BlockingQueue<ByteBuffer> libres = new ArrayBlockingQueue<>(NB_TAMPONS);
+    private final BlockingQueue<ByteBuffer> pleins = new ArrayBlockingQueue<>(NB_TAMPONS);
+
+    // Tampon en cours de remplissage (protégé par this)
+    private ByteBuffer courant;
+
+    private final ThreadLocal<ByteBuffer> locaux = ThreadLocal.withInitial(() -> ByteBuffer.allocate(TAILLE_LOCALE));
+
+    private final AtomicLong runs = new AtomicLong(), perdus = new AtomicLong();
+
+    private final Thread ecrivain;
+    private volatile boolean ferme;
+
+    /**
+     * Enregistreur configuré par la propriété robokode.trace.
+     *
+     * @return null si les traces sont désactivées.
+     */
+    public static synchronized TraceRecorder Instance() {
+        if (!initialise) {
+            initialise = true;
+            String chemin = System.getProperty("robokode.trace");
+            if (chemin != null) {
+                try {
+                    instance = new TraceRecorder(Paths.get(chemin));
+                    ConsoleLog.put("Traces : enregistrement dans " + chemin);
+                } catch (IOException e) {
+                    ConsoleLog.put("Traces : impossible d'ouvrir " + chemin + " (" + e.getMessage() + ")");
+                }
+            }
+        }
+        return instance;
+    }
+
+    public TraceRecorder(Path chemin) throws IOException {
+        fichier = FileChannel.open(chemin, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        for (int i = 0; i < NB_TAMPONS; i++) libres.add(ByteBuffer.allocateDirect(TAILLE_TAMPON));
+
+        ecrivain = new Thread(this::ecrire, "RoboKode-traces");
+        ecrivain.setDaemon(true);
+        ecrivain.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(this::fermer));
+    }
+
+    /**
+     * Commence la trace d'une exécution.
+     *
+     * @param carte Identifiant de la carte jouée.
+     * @param script Script exécuté (seul son hash est enregistré).
+     */
+    public Trace ouvrir(int carte, String script) {
+        ByteBuffer tampon = locaux.get();
+        tampon.clear();
+        return new Trace(this, tampon, runs.incrementAndGet(), carte, script);
+    }
+
+    /** Nombre de traces perdues faute de place dans l'anneau **/
+    public long getPerdus() {
+        return perdus.get();
+    }
+
+    /** Ferme l'enregistreur : les traces en attente sont écrites **/
+    public void fermer() {
+        if (ferme) return;
+        ferme = true;
+
+        // Pas d'interruption : elle fermerait le FileChannel au milieu d'une écriture
+        try {
+            ecrivain.join();
+            synchronized (this) { rotation(); }
+
+            List<ByteBuffer> lot = new ArrayList<>();
+            pleins.drainTo(lot);
+            ecrire(lot);
+            fichier.force(false);
+            fichier.close();
+        } catch (IOException | InterruptedException e) {
+            ConsoleLog.put("Traces : fermeture incomplète (" + e.getMessage() + ")");
+        }
+    }
+
+    /* Anneau de tampons
+     * =================================== */
+
+    // Le tampon local de la trace a été remplacé par un plus grand : on le garde pour les traces suivantes
+    void agrandi(ByteBuffer tampon) {
+        locaux.set(tampon);
+    }
+
+    // Copie une trace terminée dans l'anneau, entière ou pas du tout
+    synchronized void publier(ByteBuffer trace) {
+        int place = (courant != null) ? courant.remaining() : 0;
+        if (ferme || trace.remaining() > place + libres.size() * TAILLE_TAMPON) {
+            perdus.incrementAndGet();
+            return;
+        }
+
+        while (trace.hasRemaining()) {
+            if (courant == null) courant = libres.poll();
+
+            int limite = trace.limit();
+            trace.limit(trace.position() + Math.min(trace.remaining(), courant.remaining()));
+            courant.put(trace);
+            trace.limit(limite);
+
+            if (!courant.hasRemaining()) rotation();
+        }
+    }
+
+    // Le tampon en cours passe en attente d'écriture (appelé sous verrou)
+    private void rotation() {
+        if (courant == null || courant.position() == 0) return;
+        pleins.add(courant);
+        courant = null;
+    }
+
+    /* Ecriture sur disque
+     * =================================== */
+
+    // Boucle du thread d'écriture
+    private void ecrire() {
+        List<ByteBuffer> lot = new ArrayList<>();
+
+        while (!ferme) {
+            try {
+                ByteBuffer tampon = pleins.poll(DELAI_ECRITURE, TimeUnit.MILLISECONDS);
+                if (tampon == null) {
+                    // Rien depuis un moment : on écrit ce qui est en cours
+                    synchronized (this) { rotation(); }
+                    continue;
+                }
+
+                lot.add(tampon);
+                pleins.drainTo(lot);
+                ecrire(lot);
+            } catch (InterruptedException e) {
+                break;
+            } catch (IOException e) {
+                ConsoleLog.put("Traces : erreur d'écriture (" + e.getMessage() + ")");
+                recycler(lot);
+            }
+        }
+    }
+
+    // Ecrit un lot de tampons en un seul appel, puis les rend à l'anneau
+    private void ecrire(List<ByteBuffer> lot) throws IOException {
+        if (lot.isEmpty()) return;
+
+        ByteBuffer[] tampons = lot.toArray(new ByteBuffer[0]);
+        long total = 0;
+        for (ByteBuffer tampon : tampons) {
+            tampon.flip();
+            total += tampon.remaining();
+        }
+        while (total > 0) total -= fichier.write(tampons);
+
+        recycler(lot);
+    }
+
+    private void recycler(List<ByteBuffer> lot) {
+        for (ByteBuffer tampon : lot) {
+            tampon.clear();
+            libres.add(tampon);
+        }
+        lot.clear();
+    }
+}
@@ -0,0 +1,33 @@
+package com.robokode.utils.trace;
+
+import com.robokode.game.mvc.Action;
+import com.robokode.interpreter.InterpreterMessage.TypeMessage;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Exécution décodée d'un fichier de traces : ce qu'il faut pour la rejouer
+ * dans la vue (carte et actions transmises), et son bilan.
+ */
+public class TraceRun {
+    public long run;
+    public Date date;
+    public int carte;
+    public long script; // hash du script exécuté
+
+    public int nbStatements, nbCapteurs;
+
+    // Actions transmises à la vue, dans l'ordre
+    public final List<Action> actions = new ArrayList<>();
+
+    // Dernier message de l'interpréteur (null : trace tronquée) et budget consommé
+    public TypeMessage fin;
+    public long consommation;
+
+    @Override
+    public String toString() {
+        return "run " + run + " (" + date + ") carte " + carte + " script " + Long.toHexString(script);
+    }
+}